@@ -0,0 +1,49 @@
+package com.taskmanager.benchmarks;
+
+import com.taskmanager.controller.Utils;
+import com.taskmanager.domain.Project;
+import com.taskmanager.domain.Task;
+import com.taskmanager.dto.ProjectDTO;
+import com.taskmanager.dto.TaskDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping in {@link Utils} over graphs of {@code projects} projects with
+ * {@code tasksPerProject} tasks each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    @Param({"10", "100"})
+    public int projects;
+
+    @Param({"10", "1000"})
+    public int tasksPerProject;
+
+    private List<Project> projectGraph;
+    private List<Task> tasks;
+
+    @Setup
+    public void setUp() {
+        projectGraph = Fixtures.projects(projects, tasksPerProject);
+        tasks = Fixtures.tasks(projectGraph);
+    }
+
+    @Benchmark
+    public List<TaskDTO> getTaskDTOs() {
+        return Utils.getTaskDTOs(tasks);
+    }
+
+    @Benchmark
+    public List<ProjectDTO> getProjectDTOs() {
+        return Utils.getProjectDTOs(projectGraph);
+    }
+}
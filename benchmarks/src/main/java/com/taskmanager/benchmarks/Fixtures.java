@@ -0,0 +1,79 @@
+package com.taskmanager.benchmarks;
+
+import com.taskmanager.domain.Project;
+import com.taskmanager.domain.Task;
+import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Role;
+import com.taskmanager.domain.enums.Status;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Detached entity graphs shaped like the ones the controllers map: projects owned by users, holding
+ * tasks whose creators and assignees are drawn from a shared pool of users.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName("First" + id);
+        user.setLastName("Last" + id);
+        user.setEmail("user" + id + "@example.com");
+        user.setPassword("secret");
+        user.setActive(true);
+        user.setRoles(EnumSet.of(Role.USER));
+        return user;
+    }
+
+    static List<Project> projects(int projects, int tasksPerProject) {
+        List<User> users = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            users.add(user(id));
+        }
+
+        Status[] statuses = Status.values();
+        Priority[] priorities = Priority.values();
+        LocalDateTime now = LocalDateTime.now();
+        List<Project> result = new ArrayList<>(projects);
+        long taskId = 1;
+        for (int p = 0; p < projects; p++) {
+            Project project = new Project();
+            project.setId((long) p + 1);
+            project.setTitle("Project " + p);
+            project.setDescription("Benchmark project " + p);
+            project.setOwner(users.get(p % users.size()));
+            project.setTasks(new LinkedHashSet<>());
+            for (int t = 0; t < tasksPerProject; t++, taskId++) {
+                Task task = new Task();
+                task.setId(taskId);
+                task.setTitle("Task " + taskId);
+                task.setDescription("Benchmark task " + taskId + " of project " + p);
+                task.setStatus(statuses[(int) (taskId % statuses.length)]);
+                task.setPriority(priorities[(int) (taskId % priorities.length)]);
+                task.setCreator(users.get((int) (taskId % users.size())));
+                task.setAssignee(users.get((int) ((taskId * 7) % users.size())));
+                task.setProject(project);
+                task.setDueDate(now.plusDays(taskId % 30));
+                task.setCreatedAt(now);
+                project.getTasks().add(task);
+            }
+            result.add(project);
+        }
+        return result;
+    }
+
+    static List<Task> tasks(List<Project> projects) {
+        List<Task> tasks = new ArrayList<>();
+        projects.forEach(project -> tasks.addAll(project.getTasks()));
+        return tasks;
+    }
+}
@@ -0,0 +1,75 @@
+package com.taskmanager.benchmarks;
+
+import com.taskmanager.config.JwtAuthenticationFilter;
+import com.taskmanager.domain.User;
+import com.taskmanager.repository.UserRepository;
+import com.taskmanager.security.JwtUtil;
+import com.taskmanager.security.PrincipalCache;
+import com.taskmanager.security.SecurityVersionRegistry;
+import com.taskmanager.security.VerifiedClaimsCache;
+import com.taskmanager.service.CustomUserDetailsService;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One authenticated request through {@link JwtAuthenticationFilter} with a chain that does nothing.
+ * {@code warmCaches} keeps the verified claims and the principal cached, as for a client that sends the
+ * same token repeatedly; without it every invocation verifies the signature and loads the user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"false", "true"})
+    public boolean statelessAuth;
+
+    @Param({"true", "false"})
+    public boolean warmCaches;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() {
+        User user = Fixtures.user(42);
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+
+        JwtUtil jwtUtil = new JwtUtil();
+        int cacheSize = warmCaches ? 10_000 : 0;
+        filter = new JwtAuthenticationFilter(
+                jwtUtil,
+                new CustomUserDetailsService(userRepository, new PrincipalCache(cacheSize, 60_000)),
+                new VerifiedClaimsCache(jwtUtil, cacheSize, 300_000),
+                new SecurityVersionRegistry(userRepository),
+                statelessAuth);
+
+        request = new MockHttpServletRequest("GET", "/api/tasks");
+        request.addHeader("Authorization", "Bearer " + jwtUtil.generateToken(user));
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> { };
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        try {
+            filter.doFilter(request, response, chain);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
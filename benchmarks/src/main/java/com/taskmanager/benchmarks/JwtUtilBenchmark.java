@@ -0,0 +1,54 @@
+package com.taskmanager.benchmarks;
+
+import com.taskmanager.domain.User;
+import com.taskmanager.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuing, and token checks with a signature verification ({@code extractUsername},
+ * {@code isTokenValid} on the raw token) and without one ({@code isTokenValid} on verified claims).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private User user;
+    private String token;
+    private Claims claims;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        user = Fixtures.user(42);
+        token = jwtUtil.generateToken(user);
+        claims = jwtUtil.extractAllClaims(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtUtil.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtUtil.isTokenValid(token, user);
+    }
+
+    @Benchmark
+    public boolean isTokenValidOnClaims() {
+        return jwtUtil.isTokenValid(claims, user);
+    }
+}
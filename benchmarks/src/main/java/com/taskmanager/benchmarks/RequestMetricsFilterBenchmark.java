@@ -0,0 +1,57 @@
+package com.taskmanager.benchmarks;
+
+import com.taskmanager.metrics.RequestMetricsFilter;
+import com.taskmanager.metrics.RequestPhases;
+import com.taskmanager.metrics.RequestPhases.Phase;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the phase metrics: {@code instrumented} runs a chain that times every phase once
+ * through {@link RequestMetricsFilter}, {@code baseline} runs the same chain without the filter, where
+ * every {@link RequestPhases} call is a no-op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestMetricsFilterBenchmark {
+
+    private RequestMetricsFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() {
+        filter = new RequestMetricsFilter(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        request = new MockHttpServletRequest("GET", "/api/tasks/42");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/tasks/{id}");
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> {
+            for (Phase phase : Phase.values()) {
+                RequestPhases.end(phase, RequestPhases.begin(phase));
+            }
+            RequestPhases.countStatement();
+        };
+    }
+
+    @Benchmark
+    public void instrumented() throws Exception {
+        filter.doFilter(request, response, chain);
+    }
+
+    @Benchmark
+    public void baseline() throws Exception {
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,48 @@
+package com.taskmanager.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.controller.Utils;
+import com.taskmanager.dto.TaskDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a {@link TaskDTO} list, as written by the JSON message converter for the task
+ * listing. The mapper is built the way Spring Boot builds its default one. Writing to a discarding stream
+ * keeps the output buffer out of the numbers; {@code toBytes} includes it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskDtoSerializationBenchmark {
+
+    @Param({"50", "500", "10000"})
+    public int tasks;
+
+    private ObjectMapper objectMapper;
+    private List<TaskDTO> dtos;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        dtos = Utils.getTaskDTOs(Fixtures.tasks(Fixtures.projects(1, tasks)));
+    }
+
+    @Benchmark
+    public void toStream() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), dtos);
+    }
+
+    @Benchmark
+    public byte[] toBytes() throws IOException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+}
@@ -0,0 +1,98 @@
+package com.taskmanager.benchmarks;
+
+import com.taskmanager.service.TaskSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TaskSearchIndex} queries over {@code tasks} synthetic tasks: 5-word titles and 20-word descriptions
+ * drawn from a 20,000-word vocabulary with a Zipf-like distribution, so a few words occur in most tasks
+ * and most words are rare. Needs a heap of about 2 GB at a million tasks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class TaskSearchIndexBenchmark {
+
+    private static final int VOCABULARY = 20_000;
+
+    @Param({"100000", "1000000"})
+    public int tasks;
+
+    /**
+     * {@code rare}: one word of rank 5,000; {@code common}: the most frequent word; {@code twoWords}: a
+     * frequent and a rare word; {@code prefix}: the first three letters of the word of rank 50.
+     */
+    @Param({"rare", "common", "twoWords", "prefix"})
+    public String query;
+
+    private TaskSearchIndex index;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = word(random);
+        }
+        double[] cumulative = new double[VOCABULARY];
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+
+        index = new TaskSearchIndex(null);
+        StringBuilder title = new StringBuilder();
+        StringBuilder description = new StringBuilder();
+        for (long id = 1; id <= tasks; id++) {
+            title.setLength(0);
+            description.setLength(0);
+            for (int w = 0; w < 5; w++) {
+                title.append(words[pick(random, cumulative, sum)]).append(' ');
+            }
+            for (int w = 0; w < 20; w++) {
+                description.append(words[pick(random, cumulative, sum)]).append(' ');
+            }
+            index.index(id, 0, title.toString(), description.toString());
+        }
+
+        text = switch (query) {
+            case "rare" -> words[5_000];
+            case "common" -> words[0];
+            case "twoWords" -> words[1] + " " + words[5_000];
+            case "prefix" -> words[50].substring(0, 3);
+            default -> throw new IllegalArgumentException(query);
+        };
+    }
+
+    @Benchmark
+    public TaskSearchIndex.Hits search() {
+        return index.search(text, 0, 20);
+    }
+
+    @Benchmark
+    public TaskSearchIndex.Hits searchThirdPage() {
+        return index.search(text, 40, 20);
+    }
+
+    private static int pick(Random random, double[] cumulative, double sum) {
+        int i = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+        return Math.min(i < 0 ? -i - 1 : i, cumulative.length - 1);
+    }
+
+    private static String word(Random random) {
+        char[] letters = new char[4 + random.nextInt(7)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+}
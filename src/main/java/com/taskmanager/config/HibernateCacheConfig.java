@@ -0,0 +1,34 @@
+package com.taskmanager.config;
+
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import javax.cache.CacheManager;
+import java.io.IOException;
+
+/**
+ * Backs Hibernate's second-level cache with an Ehcache JCache manager configured by
+ * {@code taskmanager.cache.config}; region sizes and expiry live there.
+ * <p>
+ * Each application context gets its own manager: the JCache provider would otherwise hand every context in
+ * the JVM the same one, and contexts on different databases would share cached rows.
+ */
+@Configuration(proxyBeanMethods = false)
+public class HibernateCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    CacheManager hibernateCacheManager(@Value("${taskmanager.cache.config:classpath:ehcache.xml}") Resource config)
+            throws IOException {
+        return new EhcacheCachingProvider().getCacheManager(config.getURI(), getClass().getClassLoader());
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+}
@@ -1,17 +1,21 @@
 package com.taskmanager.config;
 
+import com.taskmanager.metrics.RequestPhases;
+import com.taskmanager.metrics.RequestPhases.Phase;
+import com.taskmanager.security.AuthenticatedUser;
 import com.taskmanager.security.JwtUtil;
+import com.taskmanager.security.SecurityVersionRegistry;
+import com.taskmanager.security.VerifiedClaimsCache;
 import com.taskmanager.service.CustomUserDetailsService;
-import com.taskmanager.service.JwtService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -19,11 +23,26 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtils;
     private final CustomUserDetailsService customUserDetails;
+    private final VerifiedClaimsCache verifiedClaims;
+    private final SecurityVersionRegistry securityVersions;
+    private final boolean statelessAuth;
+
+    public JwtAuthenticationFilter(
+            JwtUtil jwtUtils,
+            CustomUserDetailsService customUserDetails,
+            VerifiedClaimsCache verifiedClaims,
+            SecurityVersionRegistry securityVersions,
+            @Value("${taskmanager.security.stateless-auth:false}") boolean statelessAuth) {
+        this.jwtUtils = jwtUtils;
+        this.customUserDetails = customUserDetails;
+        this.verifiedClaims = verifiedClaims;
+        this.securityVersions = securityVersions;
+        this.statelessAuth = statelessAuth;
+    }
 
     @Override
     protected void doFilterInternal(
@@ -34,18 +53,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         if (isBearerToken(authHeader)) {
             String jwt = authHeader.substring(7);
-            String userEmail = JwtService.extractUsername(jwt);
+            Claims claims = RequestPhases.time(Phase.JWT, () -> verifiedClaims.verify(jwt));
+            String userEmail = claims.getSubject();
             if (isAuthenticationRequired(userEmail)) {
-                authenticateUser(request, jwt, userEmail);
+                authenticateUser(request, claims, userEmail);
             }
         }
 
         filterChain.doFilter(request, response);
     }
 
-    private void authenticateUser(HttpServletRequest request, String jwt, String userEmail) {
-        UserDetails userDetails = customUserDetails.loadUserByUsername(userEmail);
-        if (jwtUtils.isTokenValid(jwt, userDetails)) {
+    private void authenticateUser(HttpServletRequest request, Claims claims, String userEmail) {
+        AuthenticatedUser userDetails = RequestPhases.time(Phase.PRINCIPAL, () -> loadPrincipal(claims, userEmail));
+        if (userDetails != null && userDetails.isEnabled() && jwtUtils.isTokenValid(claims, userDetails)) {
             UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
                     userDetails, null, userDetails.getAuthorities()
             );
@@ -54,6 +74,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
     }
 
+    /**
+     * In stateless mode a token that carries the user id is trusted as long as its user is active and its
+     * security version is current; the users table is not touched. Tokens without the claim fall back to the
+     * cached lookup, which also rejects a token whose email has since passed to another user.
+     */
+    private AuthenticatedUser loadPrincipal(Claims claims, String userEmail) {
+        Long userId = jwtUtils.extractUserId(claims);
+        if (statelessAuth && userId != null) {
+            long version = jwtUtils.extractSecurityVersion(claims);
+            return securityVersions.isCurrent(userId, version) ? jwtUtils.toPrincipal(claims) : null;
+        }
+        AuthenticatedUser principal = customUserDetails.loadPrincipal(userEmail);
+        return principal == null || userId == null || userId.equals(principal.id()) ? principal : null;
+    }
+
     private boolean isAuthenticationRequired(String userEmail) {
         return SecurityContextHolder.getContext().getAuthentication() == null && userEmail != null;
     }
@@ -1,6 +1,7 @@
 package com.taskmanager.config;
 
 import com.taskmanager.service.CustomUserDetailsService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -31,6 +32,8 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(Customizer.withDefaults())
                 .authorizeHttpRequests(authorize -> authorize
+                        // The request was authorized before it went async; exports and the change feed complete this way.
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers( "/api/users/register", "/api/users/login", "/api/users/refresh").permitAll()
                         .anyRequest().authenticated()
                 )
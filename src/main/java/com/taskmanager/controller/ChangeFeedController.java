@@ -0,0 +1,37 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.domain.enums.Role;
+import com.taskmanager.service.ChangeFeed;
+import com.taskmanager.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/feed")
+public class ChangeFeedController {
+    private final ChangeFeed changeFeed;
+    private final UserService userService;
+
+    /**
+     * Streams task and project changes as Server-Sent Events, instead of polling the lists. Each event is
+     * named after the change, e.g. {@code task.updated}, and carries the {@code id} and {@code version} of
+     * the entity. A user receives the changes of tasks they created or are assigned to and of projects they
+     * own; admins receive all changes. A {@code resync} event means changes were dropped because the client
+     * fell behind.
+     */
+    @GetMapping(path = "", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe() {
+        boolean admin = SecurityContextHolder.getContext().getAuthentication().getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(Role.ADMIN.getAuthority()::equals);
+        // Token principals carry their id: the feed runs no query, so it holds no connection while open.
+        return changeFeed.subscribe(Utils.getCurrentUserId(userService::findByEmail), admin);
+    }
+}
@@ -1,15 +1,23 @@
 package com.taskmanager.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.taskmanager.domain.Project;
 import com.taskmanager.domain.User;
+import com.taskmanager.dto.ProjectDTO;
+import com.taskmanager.dto.ProjectPatch;
+import com.taskmanager.dto.ProjectTaskRow;
 import com.taskmanager.service.ProjectService;
+import com.taskmanager.service.ProjectTaskCounts;
 import com.taskmanager.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.*;
 
@@ -21,6 +29,7 @@ import static com.taskmanager.controller.Utils.*;
 public class ProjectController {
     private final ProjectService projectService;
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("")
     public ResponseEntity<?> createProject(@Valid @RequestBody Project project, BindingResult bindingResult) {
@@ -35,58 +44,120 @@ public class ProjectController {
         return ResponseEntity.ok(getProjectDTO(projectService.saveProject(project)));
     }
 
+    /**
+     * Lists every project with its tasks under an aggregate ETag; a matching {@code If-None-Match} gets
+     * {@code 304 Not Modified} before any DTO is built.
+     */
     @GetMapping("")
-    public ResponseEntity<?> getProjects() {
-        return ResponseEntity.ok(getProjectDTOs(projectService.getProjects()));
+    public ResponseEntity<?> getProjects(WebRequest request) {
+        List<ProjectTaskRow> rows = projectService.getProjectViews();
+        String eTag = getProjectRowsETag("ps-", rows);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(getProjectDTOsFromRows(rows));
+    }
+
+    /**
+     * Exports every project as newline-delimited JSON. Tasks are not nested; they are exported by
+     * {@code GET /api/tasks/export} and reference their project through {@code projectId}.
+     *
+     * @param gzip whether to gzip-compress the response body.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProjects(@RequestParam(defaultValue = "false") boolean gzip) {
+        return ndjsonResponse(objectMapper, gzip, sink -> projectService.streamProjects(project -> sink.accept(
+                new ProjectDTO(project.getId(), project.getTitle(), project.getDescription(), project.getOwner().getEmail(), null)
+        )));
+    }
+
+    /**
+     * Lists the task counts of every project, by status and priority, from counters maintained on every task
+     * write; no task is read.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> getProjectsStats() {
+        return ResponseEntity.ok(getProjectStatsDTOs(projectService.getProjectStats()));
+    }
+
+    /**
+     * Returns the task counts of a project, by status and priority, in constant time whatever its size.
+     */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<?> getProjectStats(@PathVariable Long id) {
+        ProjectTaskCounts.Stats stats = projectService.getProjectStats(id);
+        if (stats == null) {
+            return createErrorResponse("Project not found.", HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok(getProjectStatsDTOs(List.of(stats)).get(0));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProject(@PathVariable Long id) {
-        Project project = projectService.findById(id);
-        if (project == null) {
+    public ResponseEntity<?> getProject(@PathVariable Long id, WebRequest request) {
+        List<ProjectTaskRow> rows = projectService.getProjectView(id);
+        if (rows.isEmpty()) {
             Map<String, String> errorResponse = new HashMap<>();
             errorResponse.put("error", "Project not found");
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
         }
 
-        return ResponseEntity.ok(getProjectDTO(project));
+        String eTag = getProjectETag(id, rows);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(getProjectDTOsFromRows(rows).get(0));
     }
 
     /**
-     * Partially updates a project based on the provided project data. This method checks if the current user
-     * is authorized to modify the project by comparing the owner's ID. The project will be updated only if the
-     * authenticated user is the owner of the project.
-     *
-     * <p><strong>Important:</strong> The {@link User} object in the project should only have the {@code email} field
-     * filled in, while all other fields should be left empty or null. This email is used to find the user
-     * to be set as the owner of the project.</p>
+     * Partially updates a project with a single UPDATE of the fields present in {@code patch}. Only the owner
+     * of the project may update it. With an {@code If-Match} header holding the project's ETag, the update
+     * only applies if nobody changed the project itself since; changes to its tasks do not count.
      *
      * @param id      The ID of the project to be patched.
-     * @param project The project data from the frontend, containing the updated fields.
-     * @return A {@link ResponseEntity} containing the updated project if successful, or an error message
-     * if the operation is forbidden or the project is not found.
+     * @param patch   The fields to change; the new owner is identified by its {@code email}.
+     * @param ifMatch An ETag from {@link #getProject}, or {@code null} to update whatever the current version.
+     * @return A {@link ResponseEntity} containing the updated project and its new ETag if successful, or an
+     * error message if the project is not found, the operation is forbidden or the project has changed since
+     * {@code ifMatch}.
      */
     @PatchMapping("/{id}")
-    public ResponseEntity<?> updateProject(@PathVariable Long id, @Valid @RequestBody Project project) {
-        String currentUsername = getCurrentUsername();
-        User currentUser = userService.findByEmail(currentUsername);
-
-        Project projectDB = projectService.findById(id);
-        if (projectDB == null) {
-            return createErrorResponse("Project not found.", HttpStatus.NOT_FOUND);
+    public ResponseEntity<?> updateProject(@PathVariable Long id,
+                                           @Valid @RequestBody ProjectPatch patch,
+                                           BindingResult bindingResult,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (bindingResult.hasErrors()) {
+            return ResponseEntity.badRequest().body(bindingResult.getAllErrors());
+        }
+        Long expectedVersion;
+        try {
+            expectedVersion = getVersionFromIfMatch(ifMatch, "p-" + id + "-");
+        } catch (IllegalArgumentException e) {
+            return createErrorResponse("If-Match does not match this project.", HttpStatus.PRECONDITION_FAILED);
         }
 
-        if (!Objects.equals(currentUser.getEmail(), projectDB.getOwner().getEmail())) {
-            return createErrorResponse("You have no permission to change this project.", HttpStatus.FORBIDDEN);
+        Long newOwnerId = null;
+        if (patch.owner() != null && patch.owner().getEmail() != null) {
+            User owner = userService.findByEmail(patch.owner().getEmail());
+            if (owner == null) {
+                return createErrorResponse("Owner not found.", HttpStatus.BAD_REQUEST);
+            }
+            newOwnerId = owner.getId();
         }
 
-        updateFieldIfNotNull(projectDB::setTitle, project.getTitle());
-        updateFieldIfNotNull(projectDB::setDescription, project.getDescription());
-        if (project.getOwner() != null && !Objects.equals(project.getOwner().getEmail(), projectDB.getOwner().getEmail())) {
-            projectDB.setOwner(userService.findByEmail(project.getOwner().getEmail()));
+        Long currentUserId = getCurrentUserId(userService::findByEmail);
+        List<ProjectTaskRow> rows = projectService.patchProject(id, currentUserId, expectedVersion, patch, newOwnerId);
+        if (rows == null) {
+            Project projectDB = projectService.findById(id);
+            if (projectDB == null) {
+                return createErrorResponse("Project not found.", HttpStatus.NOT_FOUND);
+            }
+            if (!Objects.equals(currentUserId, projectDB.getOwner().getId())) {
+                return createErrorResponse("You have no permission to change this project.", HttpStatus.FORBIDDEN);
+            }
+            return createErrorResponse("The project has changed since it was read.", HttpStatus.PRECONDITION_FAILED);
         }
 
-        return ResponseEntity.ok(getProjectDTO(projectService.saveProject(projectDB)));
+        return ResponseEntity.ok().eTag(getProjectETag(id, rows)).body(getProjectDTOsFromRows(rows).get(0));
     }
 
     @DeleteMapping("/{id}")
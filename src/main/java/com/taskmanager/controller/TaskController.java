@@ -1,15 +1,27 @@
 package com.taskmanager.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.dto.TaskChangesDTO;
+import com.taskmanager.dto.TaskCursor;
+import com.taskmanager.dto.TaskFilter;
+import com.taskmanager.dto.TaskPageDTO;
+import com.taskmanager.dto.TaskPatch;
+import com.taskmanager.dto.TaskSearchDTO;
 import com.taskmanager.service.TaskService;
 import com.taskmanager.service.UserService;
 import com.taskmanager.domain.Task;
 import com.taskmanager.domain.User;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.*;
 
@@ -17,8 +29,17 @@ import java.util.*;
 @RequestMapping("/api/tasks")
 @RequiredArgsConstructor
 public class TaskController {
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int MAX_NEXT_TASKS = 50;
+
     private final TaskService taskService;
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     @PostMapping("")
     public ResponseEntity<?> createTask(@Valid @RequestBody Task task, BindingResult bindingResult) {
@@ -28,7 +49,6 @@ public class TaskController {
 
         String currentUsername = Utils.getCurrentUsername();
         User user = userService.findByEmail(currentUsername);
-        userService.saveUser(user);
 
         task.setCreator(user);
 
@@ -44,56 +64,226 @@ public class TaskController {
         return ResponseEntity.ok().body(Utils.getTaskDTO(taskService.saveTask(task)));
     }
 
+    /**
+     * Creates many tasks in one request. Each task is validated like in {@link #createTask}; the creator,
+     * assignees and projects are resolved with one query each, and the inserts are sent in JDBC batches.
+     * Either every task is created or none is.
+     *
+     * @param tasks The tasks to create; projects are identified by their {@code id}, assignees by their
+     *              {@code email}.
+     * @return The created tasks, in request order, or the first validation error or unknown project.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createTasks(@RequestBody List<Task> tasks) {
+        if (tasks.isEmpty() || tasks.size() > MAX_BATCH_SIZE) {
+            return Utils.createErrorResponse("A batch must contain between 1 and " + MAX_BATCH_SIZE + " tasks.",
+                    HttpStatus.BAD_REQUEST);
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            Set<ConstraintViolation<Task>> violations = validator.validate(tasks.get(i));
+            if (!violations.isEmpty()) {
+                ConstraintViolation<Task> violation = violations.iterator().next();
+                return Utils.createErrorResponse("Task " + i + ": " + violation.getPropertyPath() + " " +
+                        violation.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        List<Task> created;
+        try {
+            created = taskService.createTasks(Utils.getCurrentUsername(), tasks);
+        } catch (IllegalArgumentException e) {
+            return Utils.createErrorResponse(e.getMessage() + ".", HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(Utils.getTaskDTOs(created));
+    }
+
+    /**
+     * Lists tasks one keyset page at a time. Every filter parameter is optional. Tasks come in id order, or
+     * in due date order, then id, when {@code dueFrom} or {@code dueTo} is given. The response contains
+     * an opaque {@code nextCursor}; passing it back as {@code cursor} with the same filter returns the next
+     * page, and it is {@code null} on the last page. Pages carry an aggregate ETag for conditional requests.
+     */
     @GetMapping("")
-    public ResponseEntity<?> getTasks() {
-        return ResponseEntity.ok(Utils.getTaskDTOs(taskService.getTasks()));
+    public ResponseEntity<?> getTasks(TaskFilter filter,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                      WebRequest request) {
+        TaskCursor after;
+        try {
+            after = Utils.decodeTaskCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return Utils.createErrorResponse("Invalid cursor.", HttpStatus.BAD_REQUEST);
+        }
+        if (after != null && (after.dueDate() != null) != filter.hasDueRange()) {
+            return Utils.createErrorResponse("Invalid cursor.", HttpStatus.BAD_REQUEST);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        List<Task> tasks = taskService.getTasks(filter, after, pageSize + 1);
+        String nextCursor = null;
+        if (tasks.size() > pageSize) {
+            tasks = tasks.subList(0, pageSize);
+            Task last = tasks.get(pageSize - 1);
+            nextCursor = Utils.encodeTaskCursor(new TaskCursor(filter.hasDueRange() ? last.getDueDate() : null, last.getId()));
+        }
+
+        String eTag = Utils.getTaskPageETag(tasks, nextCursor);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(new TaskPageDTO(Utils.getTaskDTOs(tasks), nextCursor));
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<?> getTask(@PathVariable Long id) {
-        return Utils.getEntityResponse(id, taskService::getTask, Utils::getTaskDTO, "Task");
+    /**
+     * Searches task titles and descriptions. Every word of {@code q} must occur, words of three or more
+     * characters also as the start of a longer word. Results are ranked, title matches first, and returned
+     * one page at a time with the total number of matches.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchTasks(@RequestParam String q,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "" + DEFAULT_SEARCH_PAGE_SIZE) int size) {
+        if (q.isBlank()) {
+            return Utils.createErrorResponse("The query must not be empty.", HttpStatus.BAD_REQUEST);
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        int offset = (int) Math.min((long) Math.max(0, page) * pageSize, Integer.MAX_VALUE - pageSize);
+        TaskService.TaskSearchResult result = taskService.searchTasks(q, offset, pageSize);
+        return ResponseEntity.ok(new TaskSearchDTO(Utils.getTaskDTOs(result.tasks()), result.total()));
     }
 
     /**
-     * Partially updates a task based on the provided task data. This method checks if the current user
-     * is authorized to modify the task by comparing the creator's ID. The task will be updated only if the
-     * authenticated user is the creator of the task.
-     *
-     * <p><strong>Important:</strong> The {@link User} object in the task should only have the {@code email} field
-     * filled in, while all other fields should be left empty or null. This email is used to find the user
-     * to be assigned to the task.</p>
+     * Lists what the current user should pick up next: the first {@code limit} tasks to do among those
+     * assigned to them and the unassigned ones, by priority, highest first, then by due date.
+     */
+    @GetMapping("/next")
+    public ResponseEntity<?> getNextTasks(@RequestParam(defaultValue = "1") int limit) {
+        Long currentUserId = Utils.getCurrentUserId(userService::findByEmail);
+        if (currentUserId == null) {
+            return Utils.createErrorResponse("User not found.", HttpStatus.NOT_FOUND);
+        }
+        int size = Math.max(1, Math.min(limit, MAX_NEXT_TASKS));
+        return ResponseEntity.ok(Utils.getTaskDTOs(taskService.getNextTasks(currentUserId, size)));
+    }
+
+    /**
+     * Claims the first task {@link #getNextTasks} lists: it is assigned to the current user and moves to
+     * {@code IN_PROGRESS}. Concurrent claims never get the same task.
      *
-     * @param id   The ID of the task to be patched.
-     * @param task The task data from the frontend, containing the updated fields.
-     * @return A {@link ResponseEntity} containing the updated task if successful, or an error message
-     * if the operation is forbidden or the task is not found.
+     * @return The claimed task and its ETag, or {@code 404 Not Found} if there is no task to claim.
      */
-    @PatchMapping("/{id}")
-    public ResponseEntity<?> patchTask(@PathVariable Long id, @RequestBody Task task) {
-        String currentUsername = Utils.getCurrentUsername();
-        User currentUser = userService.findByEmail(currentUsername);
+    @PostMapping("/claim")
+    public ResponseEntity<?> claimTask() {
+        Long currentUserId = Utils.getCurrentUserId(userService::findByEmail);
+        if (currentUserId == null) {
+            return Utils.createErrorResponse("User not found.", HttpStatus.NOT_FOUND);
+        }
+        Task task = taskService.claimNextTask(currentUserId);
+        if (task == null) {
+            return Utils.createErrorResponse("No task to claim.", HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok().eTag(Utils.getTaskETag(task)).body(Utils.getTaskDTO(task));
+    }
 
-        Task taskDB = taskService.getTask(id);
+    /**
+     * Lists what changed since a previous call, for clients that keep a copy of the tasks: tasks created or
+     * updated, and ids of deleted tasks. Without {@code since} every task is returned. The response contains
+     * a {@code nextCursor} to pass back as {@code since}; while {@code hasMore} is set, the next call returns
+     * more changes right away.
+     * <p>
+     * Tombstones of deleted tasks are kept for {@code taskmanager.changes.tombstone-retention-ms} (30 days by
+     * default), so a {@code since} cursor must be used within that time; an older one gets {@code 410 Gone}
+     * and the client must sync again without {@code since}. Cursors are only gapless while a single instance
+     * of the application writes tasks, see {@link com.taskmanager.service.TaskChangeLog}.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getTaskChanges(@RequestParam(required = false) String since,
+                                            @RequestParam(defaultValue = "" + MAX_PAGE_SIZE) int limit) {
+        Long sinceSeq;
+        try {
+            sinceSeq = Utils.decodeCursor(since);
+        } catch (IllegalArgumentException e) {
+            return Utils.createErrorResponse("Invalid cursor.", HttpStatus.BAD_REQUEST);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
 
-        if (taskDB == null) {
-            return Utils.createErrorResponse("Task not found.", HttpStatus.NOT_FOUND);
+        // Starts below 0 so that a first sync also returns tasks inserted outside Hibernate, see V4.
+        TaskService.TaskChanges changes = taskService.getChanges(sinceSeq == null ? -1 : sinceSeq, pageSize);
+        if (changes == null) {
+            return Utils.createErrorResponse("Cursor expired; sync again without since.", HttpStatus.GONE);
         }
+        return ResponseEntity.ok(new TaskChangesDTO(Utils.getTaskDTOs(changes.changed()), changes.deleted(),
+                Utils.encodeCursor(changes.until()), changes.hasMore()));
+    }
+
+    /**
+     * Exports every task as newline-delimited JSON, one {@link com.taskmanager.dto.TaskDTO} per line.
+     *
+     * @param gzip whether to gzip-compress the response body.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTasks(@RequestParam(defaultValue = "false") boolean gzip) {
+        return Utils.ndjsonResponse(objectMapper, gzip,
+                sink -> taskService.streamTasks(task -> sink.accept(Utils.getTaskDTO(task))));
+    }
+
+    /**
+     * Returns a task with its ETag; a matching {@code If-None-Match} gets {@code 304 Not Modified}.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getTask(@PathVariable Long id, WebRequest request) {
+        return Utils.getEntityResponse(id, taskService::getTask, Utils::getTaskDTO, Utils::getTaskETag, request, "Task");
+    }
 
-        if (!Objects.equals(currentUser.getEmail(), taskDB.getCreator().getEmail())) {
-            return Utils.createErrorResponse("You have no permission to change this project.", HttpStatus.FORBIDDEN);
+    /**
+     * Partially updates a task with a single UPDATE of the fields present in {@code patch}. Only the creator
+     * of the task may update it. With an {@code If-Match} header holding the task's ETag, the update only
+     * applies if nobody changed the task since.
+     *
+     * @param id      The ID of the task to be patched.
+     * @param patch   The fields to change; the assignee is identified by its {@code email}.
+     * @param ifMatch An ETag from {@link #getTask}, or {@code null} to update whatever the current version.
+     * @return A {@link ResponseEntity} containing the updated task and its new ETag if successful, or an error
+     * message if the task is not found, the operation is forbidden or the task has changed since {@code ifMatch}.
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchTask(@PathVariable Long id,
+                                       @Valid @RequestBody TaskPatch patch,
+                                       BindingResult bindingResult,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (bindingResult.hasErrors()) {
+            return ResponseEntity.badRequest().body(bindingResult.getAllErrors());
+        }
+        Long expectedVersion;
+        try {
+            expectedVersion = Utils.getVersionFromIfMatch(ifMatch, "t-" + id + "-");
+        } catch (IllegalArgumentException e) {
+            return Utils.createErrorResponse("If-Match does not match this task.", HttpStatus.PRECONDITION_FAILED);
         }
 
-        Utils.updateFieldIfNotNull(taskDB::setTitle, task.getTitle());
-        Utils.updateFieldIfNotNull(taskDB::setDescription, task.getDescription());
-        Utils.updateFieldIfNotNull(taskDB::setStatus, task.getStatus());
-        Utils.updateFieldIfNotNull(taskDB::setPriority, task.getPriority());
-        Utils.updateFieldIfNotNull(taskDB::setDueDate, task.getDueDate());
+        Long assigneeId = null;
+        if (patch.assignee() != null && patch.assignee().getEmail() != null) {
+            User assignee = userService.findByEmail(patch.assignee().getEmail());
+            if (assignee == null) {
+                return Utils.createErrorResponse("Assignee not found.", HttpStatus.BAD_REQUEST);
+            }
+            assigneeId = assignee.getId();
+        }
 
-        if (task.getAssignee() != null && task.getAssignee().getEmail() != null) {
-            taskDB.setAssignee(userService.findByEmail(task.getAssignee().getEmail()));
+        Long currentUserId = Utils.getCurrentUserId(userService::findByEmail);
+        Task task = taskService.patchTask(id, currentUserId, expectedVersion, patch, assigneeId);
+        if (task == null) {
+            Task taskDB = taskService.getTask(id);
+            if (taskDB == null) {
+                return Utils.createErrorResponse("Task not found.", HttpStatus.NOT_FOUND);
+            }
+            if (!Objects.equals(currentUserId, taskDB.getCreator().getId())) {
+                return Utils.createErrorResponse("You have no permission to change this task.", HttpStatus.FORBIDDEN);
+            }
+            return Utils.createErrorResponse("The task has changed since it was read.", HttpStatus.PRECONDITION_FAILED);
         }
 
-        return ResponseEntity.ok(Utils.getTaskDTO(taskDB));
+        return ResponseEntity.ok().eTag(Utils.getTaskETag(task)).body(Utils.getTaskDTO(task));
     }
 
     @DeleteMapping("/{id}")
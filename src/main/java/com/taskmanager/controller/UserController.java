@@ -60,7 +60,7 @@ public class UserController {
             return createErrorResponse("Invalid password.", HttpStatus.UNAUTHORIZED);
         }
 
-        String token = jwtUtil.generateToken(user);
+        String token = jwtUtil.generateToken(userDB);
         HashMap<String, Object> claims = new HashMap<>();
         String refreshToken = jwtUtil.generateRefreshToken(claims, user);
 
@@ -117,13 +117,26 @@ public class UserController {
             return createErrorResponse("You do not have permission to update this user.", HttpStatus.FORBIDDEN);
         }
 
+        String previousEmail = userToUpdate.getEmail();
+        if (isChange(user.getEmail(), userToUpdate.getEmail())
+                || isChange(user.getPassword(), userToUpdate.getPassword())
+                || user.isActiveSet() && user.isActive() != userToUpdate.isActive()) {
+            userToUpdate.bumpSecurityVersion();
+        }
         updateFieldIfNotNull(userToUpdate::setFirstName, user.getFirstName());
         updateFieldIfNotNull(userToUpdate::setLastName, user.getLastName());
         updateFieldIfNotNull(userToUpdate::setEmail, user.getEmail());
         updateFieldIfNotNull(userToUpdate::setPassword, user.getPassword());
-        updateFieldIfNotNull(userToUpdate::setActive, user.isActive());
+        if (user.isActiveSet()) {
+            userToUpdate.setActive(user.isActive());
+        }
 
-        return ResponseEntity.ok(getUserDTO(userService.saveUser(userToUpdate)));
+        User userDB = userService.saveUser(userToUpdate);
+        userService.evictPrincipal(previousEmail);
+        return ResponseEntity.ok(getUserDTO(userDB));
     }
-}
 
+    private static boolean isChange(String value, String current) {
+        return value != null && !value.equals(current);
+    }
+}
@@ -3,18 +3,43 @@ package com.taskmanager.controller;
 import com.taskmanager.domain.Project;
 import com.taskmanager.domain.Task;
 import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
 import com.taskmanager.dto.ProjectDTO;
+import com.taskmanager.dto.ProjectStatsDTO;
+import com.taskmanager.dto.ProjectTaskRow;
+import com.taskmanager.dto.TaskCursor;
 import com.taskmanager.dto.TaskDTO;
 import com.taskmanager.dto.UserDTO;
+import com.taskmanager.metrics.RequestPhases;
+import com.taskmanager.security.AuthenticatedUser;
+import com.taskmanager.service.ProjectTaskCounts;
+import com.taskmanager.metrics.RequestPhases.Phase;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
 
 public class Utils {
     public static <T> void updateFieldIfNotNull(Consumer<T> setter, T value) {
@@ -24,37 +49,179 @@ public class Utils {
     }
 
     public static List<TaskDTO> getTaskDTOs(List<Task> tasks) {
-        List<TaskDTO> taskDTOS = new ArrayList<>();
-        tasks.forEach(task -> taskDTOS.add(getTaskDTO(task)));
-        return taskDTOS;
+        return RequestPhases.time(Phase.MAPPING, () -> toTaskDTOs(tasks));
     }
 
     public static List<ProjectDTO> getProjectDTOs(List<Project> projects) {
-        List<ProjectDTO> projectDTOS = new ArrayList<>();
-        projects.forEach(project -> projectDTOS.add(getProjectDTO(project)));
-        return projectDTOS;
+        return RequestPhases.time(Phase.MAPPING, () -> {
+            List<ProjectDTO> projectDTOS = new ArrayList<>();
+            projects.forEach(project -> projectDTOS.add(toProjectDTO(project)));
+            return projectDTOS;
+        });
+    }
+
+    /**
+     * Groups the flat rows of a project view query, which must be ordered by project id, into project DTOs.
+     */
+    public static List<ProjectDTO> getProjectDTOsFromRows(List<ProjectTaskRow> rows) {
+        return RequestPhases.time(Phase.MAPPING, () -> {
+            List<ProjectDTO> projectDTOS = new ArrayList<>();
+            ProjectDTO current = null;
+            for (ProjectTaskRow row : rows) {
+                if (current == null || !current.getId().equals(row.projectId())) {
+                    current = new ProjectDTO(row.projectId(), row.projectTitle(), row.projectDescription(),
+                            row.ownerEmail(), new ArrayList<>());
+                    projectDTOS.add(current);
+                }
+                if (row.taskId() != null) {
+                    current.getTasks().add(new TaskDTO(row.taskId(), row.taskTitle(), row.taskDescription(),
+                            row.taskStatus(), row.taskPriority(), row.taskCreatorId(), row.taskAssigneeId(), row.projectId()));
+                }
+            }
+            return projectDTOS;
+        });
     }
 
     public static UserDTO getUserDTO(User user) {
-        return new UserDTO(
+        return RequestPhases.time(Phase.MAPPING, () -> new UserDTO(
                 user.getId(),
                 user.getFirstName(),
                 user.getLastName(),
                 user.getEmail()
-        );
+        ));
+    }
+
+    public static List<ProjectStatsDTO> getProjectStatsDTOs(List<ProjectTaskCounts.Stats> stats) {
+        return RequestPhases.time(Phase.MAPPING, () -> stats.stream().map(Utils::toProjectStatsDTO).toList());
     }
 
     public static ProjectDTO getProjectDTO(Project project) {
+        return RequestPhases.time(Phase.MAPPING, () -> toProjectDTO(project));
+    }
+
+    public static TaskDTO getTaskDTO(Task task) {
+        return RequestPhases.time(Phase.MAPPING, () -> toTaskDTO(task));
+    }
+
+    /**
+     * Strong ETag of a task's representation; it changes whenever the task row is updated.
+     */
+    public static String getTaskETag(Task task) {
+        return "\"t-" + task.getId() + "-" + task.getVersion() + "\"";
+    }
+
+    /**
+     * Aggregate ETag of a page of tasks, as returned with {@code nextCursor}.
+     */
+    public static String getTaskPageETag(List<Task> tasks, String nextCursor) {
+        Fingerprint fingerprint = new Fingerprint();
+        tasks.forEach(task -> fingerprint.add(task.getId()).add(task.getVersion()));
+        return fingerprint.add(nextCursor == null ? 0 : 1).toETag("ts-");
+    }
+
+    /**
+     * ETag of a single project view, {@code "p-<id>-<version>-<fingerprint>"}: the version of the project row
+     * comes first so that {@code If-Match} can be checked against it.
+     */
+    public static String getProjectETag(Long id, List<ProjectTaskRow> rows) {
+        return getProjectRowsETag("p-" + id + "-" + rows.get(0).projectVersion() + "-", rows);
+    }
+
+    /**
+     * Aggregate ETag of the projects {@link #getProjectDTOsFromRows} builds from {@code rows}. Besides project
+     * and task versions it covers the task ids, so that removed tasks change it, and the owner emails,
+     * which live in the users table.
+     */
+    public static String getProjectRowsETag(String prefix, List<ProjectTaskRow> rows) {
+        Fingerprint fingerprint = new Fingerprint();
+        for (ProjectTaskRow row : rows) {
+            fingerprint.add(row.projectId()).add(row.projectVersion()).add(row.ownerEmail().hashCode());
+            if (row.taskId() != null) {
+                fingerprint.add(row.taskId()).add(row.taskVersion());
+            } else {
+                fingerprint.add(-1);
+            }
+        }
+        return fingerprint.toETag(prefix);
+    }
+
+    /**
+     * Reads the version an {@code If-Match} header expects from an ETag of the form
+     * {@code "<prefix><version>"} or {@code "<prefix><version>-..."}.
+     *
+     * @return the version, {@code null} if there is no header or it is {@code *}.
+     * @throws IllegalArgumentException if the header holds anything else, e.g. a weak ETag, several ETags or
+     * the ETag of another entity.
+     */
+    public static Long getVersionFromIfMatch(String ifMatch, String prefix) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        int start = prefix.length() + 1;
+        if (!eTag.startsWith("\"" + prefix) || !eTag.endsWith("\"") || eTag.length() <= start) {
+            throw new IllegalArgumentException("Not an ETag of this entity: " + eTag);
+        }
+        int end = start;
+        while (Character.isDigit(eTag.charAt(end))) {
+            end++;
+        }
+        if (end == start || (eTag.charAt(end) != '"' && eTag.charAt(end) != '-')) {
+            throw new IllegalArgumentException("Not an ETag of this entity: " + eTag);
+        }
+        return Long.valueOf(eTag.substring(start, end));
+    }
+
+    /**
+     * Order-sensitive 64-bit hash of a sequence of longs.
+     */
+    private static final class Fingerprint {
+        private long hash = 0x9E3779B97F4A7C15L;
+
+        Fingerprint add(long value) {
+            hash = Long.rotateLeft((hash ^ value) * 0xBF58476D1CE4E5B9L, 31);
+            return this;
+        }
+
+        String toETag(String prefix) {
+            long h = hash;
+            h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+            h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+            return "\"" + prefix + Long.toHexString(h ^ (h >>> 31)) + "\"";
+        }
+    }
+
+    private static List<TaskDTO> toTaskDTOs(Collection<Task> tasks) {
+        List<TaskDTO> taskDTOS = new ArrayList<>();
+        tasks.forEach(task -> taskDTOS.add(toTaskDTO(task)));
+        return taskDTOS;
+    }
+
+    private static ProjectDTO toProjectDTO(Project project) {
         return new ProjectDTO(
                 project.getId(),
                 project.getTitle(),
                 project.getDescription(),
                 project.getOwner() == null ? null : project.getOwner().getEmail(),
-                getTaskDTOs(project.getTasks().stream().toList())
+                toTaskDTOs(project.getTasks())
         );
     }
 
-    public static TaskDTO getTaskDTO(Task task) {
+    private static ProjectStatsDTO toProjectStatsDTO(ProjectTaskCounts.Stats stats) {
+        long total = 0;
+        Map<Status, Long> byStatus = new EnumMap<>(Status.class);
+        Map<Priority, Long> byPriority = new EnumMap<>(Priority.class);
+        for (Map.Entry<Status, Map<Priority, Long>> status : stats.counts().entrySet()) {
+            for (Map.Entry<Priority, Long> priority : status.getValue().entrySet()) {
+                total += priority.getValue();
+                byStatus.merge(status.getKey(), priority.getValue(), Long::sum);
+                byPriority.merge(priority.getKey(), priority.getValue(), Long::sum);
+            }
+        }
+        return new ProjectStatsDTO(stats.projectId(), total, byStatus, byPriority, stats.counts());
+    }
+
+    private static TaskDTO toTaskDTO(Task task) {
         return new TaskDTO(
                 task.getId(),
                 task.getTitle(),
@@ -62,10 +229,87 @@ public class Utils {
                 task.getStatus(),
                 task.getPriority(),
                 task.getCreator() == null ? null : task.getCreator().getId(),
-                task.getAssignee() == null ? null : task.getAssignee().getId()
+                task.getAssignee() == null ? null : task.getAssignee().getId(),
+                task.getProject() == null ? null : task.getProject().getId()
         );
     }
 
+    /**
+     * Streams the rows pushed by {@code rows} as newline-delimited JSON, optionally gzip-compressed.
+     * Rows are serialized as they arrive, so memory use does not depend on the number of rows.
+     */
+    public static ResponseEntity<StreamingResponseBody> ndjsonResponse(
+            ObjectMapper objectMapper,
+            boolean gzip,
+            Consumer<Consumer<Object>> rows
+    ) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : new BufferedOutputStream(out, 64 * 1024);
+            try (JsonGenerator generator = objectMapper.createGenerator(target)) {
+                generator.setRootValueSeparator(null);
+                rows.accept(row -> {
+                    try {
+                        writer.writeValue(generator, row);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Encodes the cursor as the id alone, as {@link #encodeCursor(Long)} does, or as {@code <due date>,<id>}.
+     */
+    public static String encodeTaskCursor(TaskCursor cursor) {
+        String position = cursor.dueDate() == null ? Long.toString(cursor.id()) : cursor.dueDate() + "," + cursor.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return the position encoded in the cursor, {@code null} if there is no cursor.
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encodeTaskCursor}.
+     */
+    public static TaskCursor decodeTaskCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+        int comma = position.indexOf(',');
+        if (comma < 0) {
+            return new TaskCursor(null, Long.parseLong(position));
+        }
+        try {
+            return new TaskCursor(LocalDateTime.parse(position.substring(0, comma)),
+                    Long.parseLong(position.substring(comma + 1)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @return the id encoded in the cursor, {@code null} if there is no cursor.
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encodeCursor(Long)}.
+     */
+    public static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+    }
+
     public static <T, D> ResponseEntity<?> getEntityResponse(
             Long id,
             Function<Long, T> serviceFunction,
@@ -81,6 +325,31 @@ public class Utils {
         return ResponseEntity.ok(dtoFunction.apply(entity));
     }
 
+    /**
+     * Like {@link #getEntityResponse(Long, Function, Function, String)}, but answers {@code 304 Not Modified}
+     * without building the DTO when the request's {@code If-None-Match} matches the entity's ETag.
+     */
+    public static <T, D> ResponseEntity<?> getEntityResponse(
+            Long id,
+            Function<Long, T> serviceFunction,
+            Function<T, D> dtoFunction,
+            Function<T, String> eTagFunction,
+            WebRequest request,
+            String entityName
+    ) {
+        T entity = serviceFunction.apply(id);
+        if (entity == null) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", entityName + " not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        }
+        String eTag = eTagFunction.apply(entity);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(dtoFunction.apply(entity));
+    }
+
     public static <T> ResponseEntity<?> deleteEntity(
             Long id,
             Function<Long, T> serviceFunction,
@@ -114,6 +383,22 @@ public class Utils {
         return ResponseEntity.status(status).body(errorResponse);
     }
 
+    /**
+     * Returns the id of the authenticated user. Token-authenticated requests carry it in their principal;
+     * for any other principal it is looked up by username.
+     */
+    public static Long getCurrentUserId(Function<String, User> findByEmail) {
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (principal instanceof AuthenticatedUser user) {
+            return user.id();
+        }
+        if (principal instanceof User user) {
+            return user.getId();
+        }
+        User user = findByEmail.apply(((UserDetails) principal).getUsername());
+        return user == null ? null : user.getId();
+    }
+
     public static String getCurrentUsername() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         return ((UserDetails) authentication.getPrincipal()).getUsername();
@@ -1,28 +1,49 @@
 package com.taskmanager.domain;
 
 import com.taskmanager.domain.enums.TokenType;
+import com.taskmanager.security.TokenDigest;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.util.Date;
 
 @Entity
-@Table(name = "tokens")
+@Table(name = "tokens", indexes = {
+        @Index(name = "idx_tokens_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_tokens_user_expires_at", columnList = "user_id, expires_at"),
+        @Index(name = "idx_tokens_revoked", columnList = "is_revoked, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class JwpToken {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tokens_seq")
+    @SequenceGenerator(name = "tokens_seq", sequenceName = "tokens_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
-    @Column(name = "token", unique = true, nullable = false)
+    /**
+     * The raw token is never stored: rows are identified by {@link #tokenHash}. It is kept in memory for
+     * tokens that were just issued.
+     */
+    @Transient
     private String token;
 
+    /**
+     * SHA-256 of the token. A fixed 32-byte key keeps the unique index narrow and lookups cheap.
+     */
+    @Column(name = "token_hash", unique = true, length = 32)
+    private byte[] tokenHash;
+
+    @JdbcTypeCode(SqlTypes.SMALLINT)
     @Column(name = "token_type", nullable = false)
     private TokenType tokenType;
 
@@ -38,12 +59,15 @@ public class JwpToken {
     @Column(name = "expires_at")
     private Date expiresAt;
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
     public JwpToken(String token, TokenType tokenType, Date createdAt, Date expiresAt, User user) {
         this.token = token;
+        this.tokenHash = TokenDigest.sha256(token);
         this.tokenType = tokenType;
         this.createdAt = createdAt;
         this.expiresAt = expiresAt;
@@ -5,12 +5,17 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.Set;
 
 @Entity
 @Table(name = "projects")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "projects")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -29,10 +34,21 @@ public class Project {
     @Column(name = "description")
     private String description;
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
     private User owner;
 
+    /**
+     * Incremented on every update of the project row. Changes to its tasks do not touch it.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "project", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Task> tasks;
 }
@@ -2,22 +2,44 @@ package com.taskmanager.domain;
 
 import com.taskmanager.domain.enums.Priority;
 import com.taskmanager.domain.enums.Status;
+import com.taskmanager.service.TaskChangeListener;
+import com.taskmanager.service.TaskQueueListener;
+import com.taskmanager.service.TaskSearchListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tasks")
+@Table(name = "tasks", indexes = {
+        @Index(name = "idx_tasks_status_id", columnList = "status, id"),
+        @Index(name = "idx_tasks_priority_id", columnList = "priority, id"),
+        @Index(name = "idx_tasks_assignee_id", columnList = "assignee_id, id"),
+        @Index(name = "idx_tasks_creator_id", columnList = "creator_id, id"),
+        @Index(name = "idx_tasks_project_id", columnList = "project_id, id"),
+        @Index(name = "idx_tasks_due_date", columnList = "due_date, id"),
+        @Index(name = "idx_tasks_project_status", columnList = "project_id, status"),
+        @Index(name = "idx_tasks_assignee_due_date", columnList = "assignee_id, due_date"),
+        @Index(name = "idx_tasks_change_seq", columnList = "change_seq"),
+        @Index(name = "idx_tasks_status_due_date", columnList = "status, due_date")
+})
+@EntityListeners({TaskChangeListener.class, TaskSearchListener.class, TaskQueueListener.class})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Task {
+    /**
+     * Pooled sequence ids let Hibernate batch inserts, which identity columns rule out: one sequence
+     * call hands out {@code allocationSize} ids.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tasks_seq")
+    @SequenceGenerator(name = "tasks_seq", sequenceName = "tasks_seq", allocationSize = 50)
     @Column(name="id")
     private Long id;
 
@@ -40,14 +62,20 @@ public class Task {
     @Column(name = "priority", nullable = false)
     private Priority priority = Priority.MEDIUM;
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "creator_id", nullable = false)
     private User creator;
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "assignee_id")
     private User assignee;
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "project_id", nullable = false)
     private Project project;
@@ -62,6 +90,19 @@ public class Task {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Incremented on every update; the task's ETag is derived from it.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    /**
+     * Stamp of the last write, from {@link com.taskmanager.service.TaskChangeLog}.
+     */
+    @Column(name = "change_seq", nullable = false)
+    private long changeSeq;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -1,12 +1,19 @@
 package com.taskmanager.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.taskmanager.domain.enums.Role;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -17,6 +24,8 @@ import java.util.Set;
 
 @Entity
 @Table(name="users")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-by-email")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -37,7 +46,8 @@ public class User implements UserDetails {
     @Column(name = "last_name")
     private String lastName;
 
-    @Column(name = "email")
+    @NaturalId(mutable = true)
+    @Column(name = "email", unique = true)
     @Email
     @NotNull
     private String email;
@@ -48,22 +58,55 @@ public class User implements UserDetails {
     private String password;
 
     @Column(name="is_active")
-    private boolean isActive;
-
+    private boolean isActive = true;
+
+    /**
+     * Whether {@link #setActive} was called, so that a partial update can tell an omitted flag from {@code false}.
+     */
+    @Transient
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean activeSet;
+
+    /**
+     * Stamp embedded into access tokens. Bumped whenever the email, password or active flag change so that
+     * stateless authentication can reject tokens issued before the change.
+     */
+    @ColumnDefault("0")
+    @Column(name = "security_version", nullable = false)
+    private long securityVersion;
+
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-roles")
     @ElementCollection(targetClass = Role.class, fetch = FetchType.EAGER)
     @CollectionTable(name="user_role", joinColumns = @JoinColumn(name = "user_id"))
     @Enumerated(EnumType.STRING)
     private Set<Role> roles = new HashSet<>();
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<JwpToken> tokens;
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Project> ownedProjects = new HashSet<>();
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "assignee", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Task> assignedTasks = new HashSet<>();
 
+    public void setActive(boolean active) {
+        isActive = active;
+        activeSet = true;
+    }
+
+    public void bumpSecurityVersion() {
+        securityVersion++;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return roles;
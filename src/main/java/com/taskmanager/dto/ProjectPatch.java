@@ -0,0 +1,14 @@
+package com.taskmanager.dto;
+
+import jakarta.validation.constraints.Size;
+
+/**
+ * Body of {@code PATCH /api/projects/{id}}. A {@code null} field is left unchanged; the new owner is
+ * identified by its {@code email} alone.
+ */
+public record ProjectPatch(
+        @Size(min = 2, max = 100) String title,
+        @Size(max = 500) String description,
+        UserDTO owner
+) {
+}
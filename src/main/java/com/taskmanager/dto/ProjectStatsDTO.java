@@ -0,0 +1,23 @@
+package com.taskmanager.dto;
+
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Task counts of a project: in total, by status, by priority, and by status then priority.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProjectStatsDTO {
+    private Long projectId;
+    private long total;
+    private Map<Status, Long> byStatus;
+    private Map<Priority, Long> byPriority;
+    private Map<Status, Map<Priority, Long>> counts;
+}
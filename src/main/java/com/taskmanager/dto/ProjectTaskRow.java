@@ -0,0 +1,25 @@
+package com.taskmanager.dto;
+
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
+
+/**
+ * One row of the flat project view query: a project header joined with one of its tasks. The task
+ * columns are {@code null} for a project without tasks.
+ */
+public record ProjectTaskRow(
+        Long projectId,
+        long projectVersion,
+        String projectTitle,
+        String projectDescription,
+        String ownerEmail,
+        Long taskId,
+        String taskTitle,
+        String taskDescription,
+        Status taskStatus,
+        Priority taskPriority,
+        Long taskCreatorId,
+        Long taskAssigneeId,
+        Long taskVersion
+) {
+}
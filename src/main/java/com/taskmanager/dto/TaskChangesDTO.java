@@ -0,0 +1,17 @@
+package com.taskmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskChangesDTO {
+    private List<TaskDTO> tasks;
+    private List<Long> deletedIds;
+    private String nextCursor;
+    private boolean hasMore;
+}
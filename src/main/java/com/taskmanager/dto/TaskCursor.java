@@ -0,0 +1,10 @@
+package com.taskmanager.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Where a page of {@code GET /api/tasks} ended: the id of its last task and, when the page is ordered by due
+ * date, the due date of that task.
+ */
+public record TaskCursor(LocalDateTime dueDate, long id) {
+}
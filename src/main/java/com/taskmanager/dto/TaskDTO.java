@@ -25,4 +25,6 @@ public class TaskDTO {
     private Long creatorId;
 
     private Long assigneeId;
+
+    private Long projectId;
 }
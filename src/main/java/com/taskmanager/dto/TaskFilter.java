@@ -0,0 +1,26 @@
+package com.taskmanager.dto;
+
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+public record TaskFilter(
+        Status status,
+        Priority priority,
+        Long assigneeId,
+        Long creatorId,
+        Long projectId,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueFrom,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueTo
+) {
+
+    /**
+     * Whether the filter bounds the due date. Pages are then ordered by due date, then id, so that they are
+     * ranges of the {@code (due_date, id)} index.
+     */
+    public boolean hasDueRange() {
+        return dueFrom != null || dueTo != null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.taskmanager.dto;
+
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
+import jakarta.validation.constraints.FutureOrPresent;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+
+/**
+ * Body of {@code PATCH /api/tasks/{id}}. A {@code null} field is left unchanged; the assignee is identified
+ * by its {@code email} alone.
+ */
+public record TaskPatch(
+        @Size(min = 2, max = 100) String title,
+        @Size(max = 500) String description,
+        Status status,
+        Priority priority,
+        @FutureOrPresent LocalDateTime dueDate,
+        UserDTO assignee
+) {
+}
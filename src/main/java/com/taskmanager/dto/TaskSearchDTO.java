@@ -0,0 +1,15 @@
+package com.taskmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskSearchDTO {
+    private List<TaskDTO> tasks;
+    private int total;
+}
@@ -0,0 +1,152 @@
+package com.taskmanager.metrics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Offline summary of the {@code taskmanager.Request} and {@code taskmanager.Phase} events in a JFR
+ * recording: for every endpoint, how request time and allocation split into phases.
+ * <p>
+ * Record with {@code jcmd <pid> JFR.start duration=60s filename=app.jfr}, then run
+ * {@code java -cp target/classes com.taskmanager.metrics.JfrPhaseReport app.jfr}; it needs nothing but
+ * the JDK.
+ */
+public class JfrPhaseReport {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: JfrPhaseReport <recording.jfr>");
+            System.exit(2);
+        }
+        print(summarize(Path.of(args[0])), System.out);
+    }
+
+    /**
+     * Reads the whole recording, then attributes each phase event to its request. Events are not ordered
+     * within a recording, so the two cannot be joined while reading.
+     */
+    static Map<String, EndpointSummary> summarize(Path recording) throws IOException {
+        List<RecordedEvent> requests = new ArrayList<>();
+        Map<Long, List<RecordedEvent>> phasesByRequest = new HashMap<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                String type = event.getEventType().getName();
+                if ("taskmanager.Request".equals(type)) {
+                    requests.add(event);
+                } else if ("taskmanager.Phase".equals(type)) {
+                    phasesByRequest.computeIfAbsent(event.getLong("requestId"), id -> new ArrayList<>()).add(event);
+                }
+            }
+        }
+
+        Map<String, EndpointSummary> endpoints = new TreeMap<>();
+        for (RecordedEvent request : requests) {
+            EndpointSummary endpoint = endpoints.computeIfAbsent(
+                    request.getString("method") + " " + request.getString("endpoint"), name -> new EndpointSummary());
+            endpoint.add(request, phasesByRequest.getOrDefault(request.getLong("requestId"), List.of()));
+        }
+        return endpoints;
+    }
+
+    static void print(Map<String, EndpointSummary> endpoints, PrintStream out) {
+        if (endpoints.isEmpty()) {
+            out.println("No taskmanager.Request events in the recording.");
+            return;
+        }
+        for (Map.Entry<String, EndpointSummary> entry : endpoints.entrySet()) {
+            EndpointSummary endpoint = entry.getValue();
+            out.printf("%n%s: %d requests, mean %.2f ms, %.1f KB allocated, %.1f SQL statements (%.2f ms)%n",
+                    entry.getKey(), endpoint.requests, millis(endpoint.nanos) / endpoint.requests,
+                    endpoint.allocated / 1024.0 / endpoint.requests, (double) endpoint.statements / endpoint.requests,
+                    millis(endpoint.sqlNanos) / endpoint.requests);
+            out.printf("  %-14s %8s %10s %7s %10s %12s%n", "phase", "calls/req", "ms/req", "time %", "rows/call", "KB/req");
+            for (Map.Entry<RequestPhases.Phase, PhaseSummary> phase : endpoint.phases.entrySet()) {
+                PhaseSummary summary = phase.getValue();
+                out.printf("  %-14s %8.2f %10.3f %6.1f%% %10s %12.1f%n",
+                        phase.getKey().tag(),
+                        (double) summary.calls / endpoint.requests,
+                        millis(summary.nanos) / endpoint.requests,
+                        100.0 * summary.nanos / endpoint.nanos,
+                        summary.rowCalls == 0 ? "-" : String.format("%.1f", (double) summary.rows / summary.rowCalls),
+                        summary.allocated / 1024.0 / endpoint.requests);
+            }
+            endpoint.details.entrySet().stream()
+                    .sorted(Map.Entry.<String, PhaseSummary>comparingByValue(
+                            (a, b) -> Long.compare(b.nanos, a.nanos)))
+                    .forEach(detail -> out.printf("    %-40s %6d calls %10.3f ms/req%n",
+                            detail.getKey(), detail.getValue().calls, millis(detail.getValue().nanos) / endpoint.requests));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    static class EndpointSummary {
+        long requests;
+        long nanos;
+        long allocated;
+        long statements;
+        long sqlNanos;
+        final Map<RequestPhases.Phase, PhaseSummary> phases = new EnumMap<>(RequestPhases.Phase.class);
+        final Map<String, PhaseSummary> details = new TreeMap<>();
+
+        void add(RecordedEvent request, List<RecordedEvent> phaseEvents) {
+            requests++;
+            nanos += request.getDuration().toNanos();
+            allocated += request.getLong("allocated");
+            statements += request.getInt("statements");
+            sqlNanos += request.getLong("sqlTime");
+            for (RecordedEvent event : phaseEvents) {
+                RequestPhases.Phase phase = phaseOf(event.getString("phase"));
+                if (phase == null) {
+                    continue;
+                }
+                phases.computeIfAbsent(phase, key -> new PhaseSummary()).add(event);
+                String detail = event.getString("detail");
+                if (detail != null) {
+                    details.computeIfAbsent(detail, key -> new PhaseSummary()).add(event);
+                }
+            }
+        }
+
+        private static RequestPhases.Phase phaseOf(String tag) {
+            for (RequestPhases.Phase phase : RequestPhases.Phase.values()) {
+                if (phase.tag().equals(tag)) {
+                    return phase;
+                }
+            }
+            return null;
+        }
+    }
+
+    static class PhaseSummary {
+        long calls;
+        long nanos;
+        long allocated;
+        long rows;
+        long rowCalls;
+
+        void add(RecordedEvent event) {
+            calls++;
+            nanos += event.getDuration().toNanos();
+            allocated += event.getLong("allocated");
+            long eventRows = event.getLong("rows");
+            if (eventRows >= 0) {
+                rows += eventRows;
+                rowCalls++;
+            }
+        }
+    }
+}
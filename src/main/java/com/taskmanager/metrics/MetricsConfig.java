@@ -0,0 +1,180 @@
+package com.taskmanager.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.metrics.RequestPhases.Phase;
+import com.taskmanager.security.PrincipalCache;
+import com.taskmanager.security.VerifiedClaimsCache;
+import com.taskmanager.service.ChangeFeed;
+import com.taskmanager.service.ProjectTaskCounts;
+import com.taskmanager.service.TaskExpiry;
+import com.taskmanager.service.TaskQueue;
+import com.taskmanager.service.TokenJournal;
+import com.taskmanager.service.TokenReaper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hooks the {@link RequestPhases} that are not timed in place: repository calls and JSON writing.
+ * HikariCP pool metrics ({@code hikaricp.connections.*}, including the acquire wait) and per-repository
+ * timers ({@code spring.data.repository.invocations}) come from Spring Boot's auto-configuration.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    @Bean
+    static BeanPostProcessor repositoryPhaseBeanPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(@NonNull Object bean, @NonNull String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+                    repositoryFactoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repository) -> proxyFactory.addAdvice(repositoryPhase(repository))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Times every repository method call as a {@link Phase#REPOSITORY} phase, tagged with the method.
+     */
+    private static MethodInterceptor repositoryPhase(RepositoryInformation repository) {
+        String prefix = repository.getRepositoryInterface().getSimpleName() + ".";
+        return invocation -> {
+            long start = RequestPhases.begin(Phase.REPOSITORY);
+            Object result = null;
+            try {
+                result = invocation.proceed();
+                return result;
+            } finally {
+                if (start >= 0) {
+                    RequestPhases.end(Phase.REPOSITORY, start, RequestPhases.rows(result), prefix + invocation.getMethod().getName());
+                } else {
+                    RequestPhases.end(Phase.REPOSITORY, start);
+                }
+            }
+        };
+    }
+
+    /**
+     * Replaces Spring Boot's JSON converter with one that times the writing of response bodies.
+     */
+    @Bean
+    MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(@NonNull Object object, @Nullable Type type, @NonNull HttpOutputMessage outputMessage)
+                    throws IOException {
+                long start = RequestPhases.begin(Phase.SERIALIZATION);
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    RequestPhases.end(Phase.SERIALIZATION, start, start < 0 ? -1 : RequestPhases.rows(object), null);
+                }
+            }
+        };
+    }
+
+    /**
+     * The hit ratios of the two authentication caches explain most of the variance of the {@code jwt} and
+     * {@code principal} phases.
+     */
+    @Bean
+    MeterBinder authenticationCacheMetrics(VerifiedClaimsCache claimsCache, PrincipalCache principalCache) {
+        return registry -> {
+            FunctionCounter.builder("taskmanager.cache.requests", claimsCache, VerifiedClaimsCache::getHitCount)
+                    .tags("cache", "verified-claims", "result", "hit").register(registry);
+            FunctionCounter.builder("taskmanager.cache.requests", claimsCache, VerifiedClaimsCache::getMissCount)
+                    .tags("cache", "verified-claims", "result", "miss").register(registry);
+            Gauge.builder("taskmanager.cache.size", claimsCache, VerifiedClaimsCache::size)
+                    .tags("cache", "verified-claims").register(registry);
+            FunctionCounter.builder("taskmanager.cache.requests", principalCache, PrincipalCache::getHitCount)
+                    .tags("cache", "principal", "result", "hit").register(registry);
+            FunctionCounter.builder("taskmanager.cache.requests", principalCache, PrincipalCache::getMissCount)
+                    .tags("cache", "principal", "result", "miss").register(registry);
+            Gauge.builder("taskmanager.cache.size", principalCache, PrincipalCache::size)
+                    .tags("cache", "principal").register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder changeFeedMetrics(ChangeFeed changeFeed) {
+        return registry -> {
+            Gauge.builder("taskmanager.feed.subscribers", changeFeed, ChangeFeed::getSubscriberCount)
+                    .description("Open change feed connections").register(registry);
+            FunctionCounter.builder("taskmanager.feed.resyncs", changeFeed, ChangeFeed::getResyncCount)
+                    .description("Resync events sent to subscribers that fell behind").register(registry);
+            FunctionCounter.builder("taskmanager.feed.evictions", changeFeed, ChangeFeed::getEvictionCount)
+                    .description("Subscribers evicted because a write to them timed out").register(registry);
+            Gauge.builder("taskmanager.feed.sender-threads", changeFeed, ChangeFeed::getSenderThreadCount)
+                    .description("Threads writing to change feed subscribers").register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder taskExpiryMetrics(TaskExpiry taskExpiry) {
+        return registry -> {
+            Gauge.builder("taskmanager.expiry.pending", taskExpiry, TaskExpiry::getPendingCount)
+                    .description("Task deadlines armed in the timing wheel").register(registry);
+            FunctionCounter.builder("taskmanager.expiry.expired", taskExpiry, TaskExpiry::getExpiredCount)
+                    .description("Tasks moved to EXPIRED").register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder projectStatsMetrics(ProjectTaskCounts taskCounts) {
+        return registry -> FunctionCounter.builder("taskmanager.project-stats.corrections", taskCounts,
+                        ProjectTaskCounts::getCorrectionCount)
+                .description("Project task counts found wrong and corrected by reconciliation").register(registry);
+    }
+
+    @Bean
+    MeterBinder taskQueueMetrics(TaskQueue taskQueue) {
+        return registry -> {
+            Gauge.builder("taskmanager.queue.size", taskQueue, TaskQueue::size)
+                    .description("Tasks queued to be claimed").register(registry);
+            FunctionCounter.builder("taskmanager.queue.claims", taskQueue, TaskQueue::getClaimCount)
+                    .description("Tasks claimed").register(registry);
+            FunctionCounter.builder("taskmanager.queue.conflicts", taskQueue, TaskQueue::getConflictCount)
+                    .description("Claims that found the task changed since it was queued").register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder tokenJournalMetrics(TokenJournal tokenJournal) {
+        return registry -> {
+            Gauge.builder("taskmanager.tokens.journal.pending", tokenJournal, TokenJournal::getPendingCount)
+                    .description("Issued tokens not written yet").register(registry);
+            FunctionCounter.builder("taskmanager.tokens.journal.write-failures", tokenJournal,
+                            TokenJournal::getWriteFailureCount)
+                    .description("Failed token batch writes, retried ones included").register(registry);
+        };
+    }
+
+    @Bean
+    MeterBinder tokenReaperMetrics(TokenReaper tokenReaper) {
+        return registry -> {
+            FunctionCounter.builder("taskmanager.tokens.reaper.rows", tokenReaper, TokenReaper::getRowsReaped)
+                    .description("Expired and revoked tokens deleted").register(registry);
+            TimeGauge.builder("taskmanager.tokens.reaper.lag", tokenReaper, TimeUnit.MILLISECONDS,
+                            TokenReaper::getLagMillis)
+                    .description("Age of the oldest expired token still stored").register(registry);
+        };
+    }
+}
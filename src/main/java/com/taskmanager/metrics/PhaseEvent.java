@@ -0,0 +1,42 @@
+package com.taskmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one timed {@link RequestPhases.Phase} of a request. It is begun and ended around the
+ * phase but only committed when the request completes, once the endpoint is known.
+ */
+@Name("taskmanager.Phase")
+@Label("Request Phase")
+@Category("Task Manager")
+@StackTrace(false)
+class PhaseEvent extends Event {
+
+    @Label("Request Id")
+    @Description("Correlates the phases of one request with its taskmanager.Request event")
+    long requestId;
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Detail")
+    @Description("The repository method, for repository calls")
+    String detail;
+
+    @Label("Rows")
+    @Description("Rows returned or mapped; -1 when not applicable")
+    long rows;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
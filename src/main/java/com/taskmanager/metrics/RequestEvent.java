@@ -0,0 +1,42 @@
+package com.taskmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event spanning one request handled by {@link RequestMetricsFilter}.
+ */
+@Name("taskmanager.Request")
+@Label("Request")
+@Category("Task Manager")
+@StackTrace(false)
+class RequestEvent extends Event {
+
+    @Label("Request Id")
+    long requestId;
+
+    @Label("Method")
+    String method;
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Status")
+    int status;
+
+    @Label("SQL Statements")
+    int statements;
+
+    @Label("SQL Time")
+    @Timespan
+    long sqlTime;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
@@ -0,0 +1,88 @@
+package com.taskmanager.metrics;
+
+import com.taskmanager.metrics.RequestPhases.Phase;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the {@link RequestPhases} of every request, tagged like {@code http.server.requests} with the
+ * method and the matched URI pattern:
+ * <ul>
+ *     <li>{@code taskmanager.request.phase} (timer, tag {@code phase}): time spent in each phase that ran</li>
+ *     <li>{@code taskmanager.request.sql.statements} (summary): JDBC statements Hibernate prepared</li>
+ * </ul>
+ * Runs ahead of the security filter chain so that token verification is included. Also commits the
+ * request's JFR events, see {@link RequestPhases}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@RequiredArgsConstructor
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+    private final Map<String, EndpointMeters> meters = new ConcurrentHashMap<>();
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        RequestPhases phases = RequestPhases.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestPhases.close();
+            publish(request, response, phases);
+        }
+    }
+
+    private void publish(HttpServletRequest request, HttpServletResponse response, RequestPhases phases) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        phases.commitEvents(request.getMethod(), uri, response.getStatus());
+        EndpointMeters endpoint = meters.computeIfAbsent(request.getMethod() + " " + uri,
+                key -> new EndpointMeters(registry, request.getMethod(), uri));
+
+        for (Phase phase : Phase.values()) {
+            if (phases.count(phase) > 0) {
+                endpoint.phases[phase.ordinal()].record(phases.nanos(phase), TimeUnit.NANOSECONDS);
+            }
+        }
+        endpoint.statements.record(phases.statements());
+    }
+
+    private static class EndpointMeters {
+        final Timer[] phases = new Timer[Phase.values().length];
+        final DistributionSummary statements;
+
+        EndpointMeters(MeterRegistry registry, String method, String uri) {
+            for (Phase phase : Phase.values()) {
+                phases[phase.ordinal()] = Timer.builder("taskmanager.request.phase")
+                        .description("Time a request spent in one phase of its handling")
+                        .tags("method", method, "uri", uri, "phase", phase.tag())
+                        .register(registry);
+            }
+            statements = DistributionSummary.builder("taskmanager.request.sql.statements")
+                    .description("JDBC statements prepared by Hibernate per request")
+                    .tags("method", method, "uri", uri)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.taskmanager.metrics;
+
+import org.springframework.data.domain.Slice;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Accumulates, for the request being handled on the current thread, how much time went into each
+ * {@link Phase}. {@link RequestMetricsFilter} opens the accumulator and publishes it when the request
+ * completes; outside a request (async export streams, scheduled jobs) every call here is a no-op.
+ * <p>
+ * Nested timings of the same phase are only counted once, by the outermost call. While a JFR recording
+ * is running, every timed phase also becomes a {@link PhaseEvent} carrying its rows and allocation.
+ */
+public final class RequestPhases {
+
+    public enum Phase {
+        /** Verifying the JWT, or finding its claims in the cache. */
+        JWT("jwt"),
+        /** Loading the principal of an authenticated request. */
+        PRINCIPAL("principal"),
+        /** Spring Data repository calls, including the SQL they run. */
+        REPOSITORY("repository"),
+        /** JDBC statement execution by Hibernate. Overlaps with the other phases. */
+        SQL("sql"),
+        /** Entity to DTO mapping in {@link com.taskmanager.controller.Utils}. */
+        MAPPING("mapping"),
+        /** Writing the JSON response body. */
+        SERIALIZATION("serialization");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final ThreadLocal<RequestPhases> CURRENT = new ThreadLocal<>();
+    private static final AtomicLong REQUEST_IDS = new AtomicLong();
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final long[] nanos = new long[PHASES.length];
+    private final int[] counts = new int[PHASES.length];
+    private final int[] depths = new int[PHASES.length];
+    private int statements;
+
+    /**
+     * {@code null} unless JFR was recording request events when the request started.
+     */
+    private final RequestEvent requestEvent;
+    private final PhaseEvent[] openEvents;
+    private final List<PhaseEvent> phaseEvents;
+
+    private RequestPhases(RequestEvent requestEvent) {
+        this.requestEvent = requestEvent;
+        this.openEvents = requestEvent == null ? null : new PhaseEvent[PHASES.length];
+        this.phaseEvents = requestEvent == null ? null : new ArrayList<>();
+    }
+
+    static RequestPhases open() {
+        RequestEvent event = new RequestEvent();
+        RequestPhases phases;
+        if (event.isEnabled()) {
+            event.allocated = allocatedBytes();
+            event.begin();
+            phases = new RequestPhases(event);
+        } else {
+            phases = new RequestPhases(null);
+        }
+        CURRENT.set(phases);
+        return phases;
+    }
+
+    static void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Starts timing {@code phase}.
+     *
+     * @return the token to pass to {@link #end(Phase, long)}; negative if nothing is being tracked.
+     */
+    public static long begin(Phase phase) {
+        RequestPhases phases = CURRENT.get();
+        if (phases == null || phases.depths[phase.ordinal()]++ > 0) {
+            return -1;
+        }
+        if (phases.openEvents != null) {
+            PhaseEvent event = new PhaseEvent();
+            event.phase = phase.tag();
+            event.allocated = allocatedBytes();
+            event.begin();
+            phases.openEvents[phase.ordinal()] = event;
+        }
+        return System.nanoTime();
+    }
+
+    public static void end(Phase phase, long start) {
+        end(phase, start, -1, null);
+    }
+
+    /**
+     * @param rows   rows returned or mapped by the phase, -1 if not applicable; see {@link #rows(Object)}.
+     * @param detail what ran, e.g. the repository method; may be {@code null}.
+     */
+    public static void end(Phase phase, long start, long rows, String detail) {
+        RequestPhases phases = CURRENT.get();
+        if (phases == null) {
+            return;
+        }
+        phases.depths[phase.ordinal()]--;
+        if (start < 0) {
+            return;
+        }
+        phases.add(phase.ordinal(), System.nanoTime() - start);
+        if (phases.openEvents != null) {
+            PhaseEvent event = phases.openEvents[phase.ordinal()];
+            event.end();
+            event.allocated = allocatedBytes() - event.allocated;
+            event.rows = rows;
+            event.detail = detail;
+            phases.phaseEvents.add(event);
+            phases.openEvents[phase.ordinal()] = null;
+        }
+    }
+
+    public static <T> T time(Phase phase, Supplier<T> work) {
+        long start = begin(phase);
+        T result = null;
+        try {
+            result = work.get();
+            return result;
+        } finally {
+            end(phase, start, start < 0 ? -1 : rows(result), null);
+        }
+    }
+
+    /**
+     * Adds a duration measured elsewhere, e.g. by a Hibernate callback.
+     */
+    public static void record(Phase phase, long nanos) {
+        RequestPhases phases = CURRENT.get();
+        if (phases != null) {
+            phases.add(phase.ordinal(), nanos);
+        }
+    }
+
+    public static void countStatement() {
+        RequestPhases phases = CURRENT.get();
+        if (phases != null) {
+            phases.statements++;
+        }
+    }
+
+    /**
+     * Counts the rows in the result of a repository call or mapping: the size of a collection or page, 0 or
+     * 1 for an optional or single value, and -1 for results that are not rows (maps, streams, scalars).
+     */
+    public static long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Map<?, ?> || result instanceof Iterable<?> || result instanceof AutoCloseable
+                || result instanceof Number || result instanceof Boolean || result instanceof CharSequence) {
+            return -1;
+        }
+        return 1;
+    }
+
+    /**
+     * Commits the JFR events of this request, now that its endpoint is known.
+     */
+    void commitEvents(String method, String endpoint, int status) {
+        if (requestEvent == null) {
+            return;
+        }
+        long requestId = REQUEST_IDS.incrementAndGet();
+        for (PhaseEvent event : phaseEvents) {
+            event.requestId = requestId;
+            event.endpoint = endpoint;
+            event.commit();
+        }
+        requestEvent.end();
+        requestEvent.allocated = allocatedBytes() - requestEvent.allocated;
+        requestEvent.requestId = requestId;
+        requestEvent.method = method;
+        requestEvent.endpoint = endpoint;
+        requestEvent.status = status;
+        requestEvent.statements = statements;
+        requestEvent.sqlTime = nanos(Phase.SQL);
+        requestEvent.commit();
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private void add(int phase, long duration) {
+        nanos[phase] += duration;
+        counts[phase]++;
+    }
+
+    long nanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    int count(Phase phase) {
+        return counts[phase.ordinal()];
+    }
+
+    int statements() {
+        return statements;
+    }
+}
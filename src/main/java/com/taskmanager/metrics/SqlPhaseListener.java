@@ -0,0 +1,40 @@
+package com.taskmanager.metrics;
+
+import com.taskmanager.metrics.RequestPhases.Phase;
+import org.hibernate.SessionEventListener;
+
+/**
+ * Feeds the statement count and execution time of every Hibernate session into {@link RequestPhases}.
+ * Registered for all sessions through {@code hibernate.session.events.auto}; Hibernate creates one
+ * instance per session, so the fields need no synchronization.
+ */
+public class SqlPhaseListener implements SessionEventListener {
+
+    private long executeStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        RequestPhases.countStatement();
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        RequestPhases.record(Phase.SQL, System.nanoTime() - executeStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        RequestPhases.record(Phase.SQL, System.nanoTime() - batchStart);
+    }
+}
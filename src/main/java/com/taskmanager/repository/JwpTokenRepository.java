@@ -6,5 +6,5 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.Optional;
 
 public interface JwpTokenRepository extends JpaRepository<JwpToken, Long> {
-    Optional<JwpToken> findByToken(String token);
+    Optional<JwpToken> findByTokenHash(byte[] tokenHash);
 }
@@ -1,7 +1,39 @@
 package com.taskmanager.repository;
 
 import com.taskmanager.domain.Project;
+import com.taskmanager.dto.ProjectTaskRow;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface ProjectRepository extends JpaRepository<Project, Long> {
+    /**
+     * Selects exactly the columns {@code ProjectDTO} and its ETag are built from, one row per project and
+     * task, so a project view never hydrates entities or triggers lazy loads of owners, roles or tasks.
+     */
+    String VIEW_ROWS = "select new com.taskmanager.dto.ProjectTaskRow(" +
+            "p.id, p.version, p.title, p.description, o.email, " +
+            "t.id, t.title, t.description, t.status, t.priority, t.creator.id, t.assignee.id, t.version) " +
+            "from Project p join p.owner o left join p.tasks t";
+
+    @Query(VIEW_ROWS + " order by p.id, t.id")
+    List<ProjectTaskRow> findAllViewRows();
+
+    @Query(VIEW_ROWS + " where p.id = :id order by t.id")
+    List<ProjectTaskRow> findViewRowsById(Long id);
+
+    @Query("select p.id from Project p where p.id in :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select p from Project p join fetch p.owner order by p.id")
+    Stream<Project> streamAll();
 }
@@ -1,7 +1,24 @@
 package com.taskmanager.repository;
 
 import com.taskmanager.domain.Task;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface TaskRepository extends JpaRepository<Task, Long> {
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface TaskRepository extends JpaRepository<Task, Long>, JpaSpecificationExecutor<Task> {
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("select t from Task t order by t.id")
+    Stream<Task> streamAll();
+
+    @Query("select t from Task t where t.changeSeq > :since and t.changeSeq <= :until order by t.changeSeq")
+    List<Task> findChanged(long since, long until, Limit limit);
 }
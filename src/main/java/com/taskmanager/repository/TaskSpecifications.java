@@ -0,0 +1,66 @@
+package com.taskmanager.repository;
+
+import com.taskmanager.domain.Task;
+import com.taskmanager.dto.TaskCursor;
+import com.taskmanager.dto.TaskFilter;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TaskSpecifications {
+
+    /**
+     * Matches the tasks that satisfy every non-null field of the filter and come after the cursor. Combined
+     * with the order of {@link #orderOf(TaskFilter)} this gives keyset pagination: each page is an index range
+     * scan that starts where the previous page ended.
+     * <p>
+     * With a due date range the key is {@code (due_date, id)}, written as {@code due_date >= ? AND (due_date > ?
+     * OR id > ?)} so that the lower bound of the range scan is a plain column comparison.
+     */
+    public static Specification<Task> matching(TaskFilter filter, TaskCursor after) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (after != null && filter.hasDueRange()) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("dueDate"), after.dueDate()));
+                predicates.add(cb.or(
+                        cb.greaterThan(root.get("dueDate"), after.dueDate()),
+                        cb.greaterThan(root.get("id"), after.id())));
+            } else if (after != null) {
+                predicates.add(cb.greaterThan(root.get("id"), after.id()));
+            }
+            if (filter.status() != null) {
+                predicates.add(cb.equal(root.get("status"), filter.status()));
+            }
+            if (filter.priority() != null) {
+                predicates.add(cb.equal(root.get("priority"), filter.priority()));
+            }
+            if (filter.assigneeId() != null) {
+                predicates.add(cb.equal(root.get("assignee").get("id"), filter.assigneeId()));
+            }
+            if (filter.creatorId() != null) {
+                predicates.add(cb.equal(root.get("creator").get("id"), filter.creatorId()));
+            }
+            if (filter.projectId() != null) {
+                predicates.add(cb.equal(root.get("project").get("id"), filter.projectId()));
+            }
+            if (filter.dueFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("dueDate"), filter.dueFrom()));
+            }
+            if (filter.dueTo() != null) {
+                predicates.add(cb.lessThan(root.get("dueDate"), filter.dueTo()));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * @return the order of the pages matched by {@link #matching}: by id, or by due date then id when the
+     * filter has a due date range.
+     */
+    public static Sort orderOf(TaskFilter filter) {
+        return filter.hasDueRange() ? Sort.by("dueDate", "id") : Sort.by("id");
+    }
+}
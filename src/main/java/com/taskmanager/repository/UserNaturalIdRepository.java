@@ -0,0 +1,16 @@
+package com.taskmanager.repository;
+
+import com.taskmanager.domain.User;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Email lookups through Hibernate's natural-id API, so they are answered from the {@code users-by-email}
+ * and {@code users} cache regions instead of a query.
+ */
+public interface UserNaturalIdRepository {
+
+    @Transactional(readOnly = true)
+    Optional<User> findByEmail(String email);
+}
@@ -1,10 +1,20 @@
 package com.taskmanager.repository;
 
+import com.taskmanager.security.SecurityVersionRegistry.SecurityVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
 import com.taskmanager.domain.User;
+import org.springframework.data.jpa.repository.Query;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
-public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByEmail(String email);
+public interface UserRepository extends JpaRepository<User, Long>, UserNaturalIdRepository {
+    List<User> findAllByEmailIn(Collection<String> emails);
+
+    @Query("select new com.taskmanager.security.SecurityVersionRegistry$SecurityVersion(u.id, u.securityVersion) " +
+            "from User u where u.securityVersion > 0")
+    List<SecurityVersion> findBumpedSecurityVersions();
+
+    @Query("select u.id from User u where u.isActive = false")
+    List<Long> findInactiveUserIds();
 }
@@ -0,0 +1,45 @@
+package com.taskmanager.security;
+
+import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Immutable principal put into the security context for JWT-authenticated requests. It carries only
+ * what authorization needs, so it can be cached and shared between requests without holding on to
+ * a managed {@link User} or its password.
+ */
+public record AuthenticatedUser(Long id, String email, Set<Role> roles, boolean active) implements UserDetails {
+
+    public AuthenticatedUser {
+        roles = Set.copyOf(roles);
+    }
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getRoles(), user.isActive());
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return roles;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return active;
+    }
+}
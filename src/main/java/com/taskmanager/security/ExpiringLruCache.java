@@ -0,0 +1,125 @@
+package com.taskmanager.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded, access-ordered cache whose entries carry their own expiry instant.
+ * Expired entries are dropped lazily on lookup; once {@code maxSize} is exceeded the
+ * least recently used entry is evicted. Every invalidation advances a {@link #generation()}, which
+ * lets a caller that loaded a value skip caching it if anything was invalidated while it loaded.
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long generation;
+
+    public ExpiringLruCache(int maxSize) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public V get(K key) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                hits.increment();
+                return entry.value();
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        lock.lock();
+        try {
+            entries.put(key, new Entry<>(value, expiresAtMillis));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts the value only if nothing was invalidated since {@code expectedGeneration} was read.
+     *
+     * @return whether the value was put.
+     */
+    public boolean putIfGeneration(K key, V value, long expiresAtMillis, long expectedGeneration) {
+        lock.lock();
+        try {
+            if (generation != expectedGeneration) {
+                return false;
+            }
+            entries.put(key, new Entry<>(value, expiresAtMillis));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            generation++;
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            generation++;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
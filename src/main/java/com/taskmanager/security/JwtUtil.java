@@ -1,13 +1,21 @@
 package com.taskmanager.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 
+import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.Role;
+
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.function.Function;
 
 import org.springframework.security.core.userdetails.UserDetails;
@@ -20,9 +28,11 @@ public class JwtUtil {
     public static final long ACCESS_EXPIRATION_TIME = 86400000;
     public static final long REFRESH_EXPIRATION_TIME = 86400000 * 7;
     private final SecretKey key;
+    private final JwtParser parser;
 
     {
         key = getSigningKey();
+        parser = Jwts.parser().verifyWith(key).build();
     }
 
     private SecretKey getSigningKey() {
@@ -30,8 +40,32 @@ public class JwtUtil {
         return new SecretKeySpec(keyBytes, "HmacSHA256");
     }
 
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLES_CLAIM = "roles";
+    public static final String SECURITY_VERSION_CLAIM = "sv";
+
+    /**
+     * Generates an access token that also carries the user id, roles and security version, so that
+     * it can be authenticated without loading the user (see {@link #toPrincipal(Claims)}).
+     * Like every token issued here it gets a random {@code jti}: tokens are stored under a unique digest,
+     * and two logins within the same second would otherwise produce the same token.
+     */
+    public String generateToken(User user) {
+        return Jwts.builder()
+                .id(UUID.randomUUID().toString())
+                .subject(user.getUsername())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLES_CLAIM, user.getRoles().stream().map(Role::name).toList())
+                .claim(SECURITY_VERSION_CLAIM, user.getSecurityVersion())
+                .issuedAt(new Date(System.currentTimeMillis()))
+                .expiration(new Date(System.currentTimeMillis() + ACCESS_EXPIRATION_TIME))
+                .signWith(key)
+                .compact();
+    }
+
     public String generateToken(UserDetails userDetails) {
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + ACCESS_EXPIRATION_TIME))
@@ -42,6 +76,7 @@ public class JwtUtil {
     public String generateRefreshToken(HashMap<String, Object> claims, UserDetails userDetails) {
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + REFRESH_EXPIRATION_TIME))
@@ -49,24 +84,66 @@ public class JwtUtil {
                 .compact();
     }
 
+    public Claims extractAllClaims(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
     private <T> T extractClaims(String token, Function<Claims, T> claimsTFunction) {
-        return claimsTFunction.apply(Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload());
+        return claimsTFunction.apply(extractAllClaims(token));
     }
 
 
+    /**
+     * Builds the principal from the claims of a token issued by {@link #generateToken(User)}. The claims do
+     * not say whether the user is still active, so the principal is active; checking that is up to
+     * {@link SecurityVersionRegistry#isCurrent}.
+     *
+     * @return the principal, or {@code null} if the token does not carry the user id claim.
+     */
+    public AuthenticatedUser toPrincipal(Claims claims) {
+        Long userId = extractUserId(claims);
+        if (userId == null) {
+            return null;
+        }
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        Set<Role> parsedRoles = EnumSet.noneOf(Role.class);
+        if (roles != null) {
+            roles.forEach(role -> parsedRoles.add(Role.valueOf(role.toString())));
+        }
+        return new AuthenticatedUser(userId, claims.getSubject(), parsedRoles, true);
+    }
+
+    /**
+     * @return the user id claim, or {@code null} if the token does not carry one.
+     */
+    public Long extractUserId(Claims claims) {
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        return userId == null ? null : userId.longValue();
+    }
+
+    public long extractSecurityVersion(Claims claims) {
+        Number version = claims.get(SECURITY_VERSION_CLAIM, Number.class);
+        return version == null ? 0 : version.longValue();
+    }
+
     public String extractUsername(String token) {
         return extractClaims(token, Claims::getSubject);
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        System.err.println(username);
-        System.err.println(userDetails.getUsername());
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return isTokenValid(extractAllClaims(token), userDetails);
+    }
+
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return (claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims));
     }
 
     public boolean isTokenExpired(String token) {
-        return extractClaims(token, Claims::getExpiration).before(new Date());
+        return isTokenExpired(extractAllClaims(token));
+    }
+
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
 }
@@ -0,0 +1,56 @@
+package com.taskmanager.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Caches {@link AuthenticatedUser} principals by email so that authenticating a request does not
+ * need a users table lookup. Every write to a user must call {@link #invalidate(String)} with each
+ * email the user was cached under.
+ */
+@Component
+public class PrincipalCache {
+
+    private final ExpiringLruCache<String, AuthenticatedUser> cache;
+    private final long ttlMillis;
+
+    public PrincipalCache(
+            @Value("${taskmanager.security.principal-cache.max-size:10000}") int maxSize,
+            @Value("${taskmanager.security.principal-cache.ttl-ms:60000}") long ttlMillis) {
+        this.cache = new ExpiringLruCache<>(maxSize);
+        this.ttlMillis = ttlMillis;
+    }
+
+    public AuthenticatedUser get(String email, Function<String, AuthenticatedUser> loader) {
+        AuthenticatedUser principal = cache.get(email);
+        if (principal == null) {
+            // A user saved while the loader runs may have been read before the save; it is then not cached.
+            long generation = cache.generation();
+            principal = loader.apply(email);
+            if (principal != null) {
+                cache.putIfGeneration(email, principal, System.currentTimeMillis() + ttlMillis, generation);
+            }
+        }
+        return principal;
+    }
+
+    public void invalidate(String email) {
+        if (email != null) {
+            cache.invalidate(email);
+        }
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,49 @@
+package com.taskmanager.security;
+
+import com.taskmanager.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of {@code users.security_version} for every user whose stamp has ever been bumped, and of
+ * the users that are deactivated. Users that are absent are at version 0. Stateless authentication accepts
+ * a token only if its user is active and the stamp it was issued with is still current.
+ */
+@Component
+@RequiredArgsConstructor
+public class SecurityVersionRegistry {
+
+    private final UserRepository userRepository;
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final Set<Long> inactive = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void load() {
+        userRepository.findBumpedSecurityVersions()
+                .forEach(version -> versions.put(version.userId(), version.version()));
+        inactive.addAll(userRepository.findInactiveUserIds());
+    }
+
+    public boolean isCurrent(Long userId, long version) {
+        return !inactive.contains(userId) && version >= versions.getOrDefault(userId, 0L);
+    }
+
+    public void record(Long userId, long version, boolean active) {
+        if (version > 0) {
+            versions.merge(userId, version, Math::max);
+        }
+        if (active) {
+            inactive.remove(userId);
+        } else {
+            inactive.add(userId);
+        }
+    }
+
+    public record SecurityVersion(Long userId, long version) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.taskmanager.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps the claims of tokens whose signature has already been verified, keyed by the SHA-256
+ * digest of the token. A cached entry never outlives the {@code exp} claim of its token, so a
+ * hit is as good as a fresh {@link JwtUtil#extractAllClaims(String)} call.
+ */
+@Component
+public class VerifiedClaimsCache {
+
+    private final JwtUtil jwtUtil;
+    private final ExpiringLruCache<ByteBuffer, Claims> cache;
+    private final long maxTtlMillis;
+
+    public VerifiedClaimsCache(
+            JwtUtil jwtUtil,
+            @Value("${taskmanager.security.claims-cache.max-size:10000}") int maxSize,
+            @Value("${taskmanager.security.claims-cache.max-ttl-ms:300000}") long maxTtlMillis) {
+        this.jwtUtil = jwtUtil;
+        this.cache = new ExpiringLruCache<>(maxSize);
+        this.maxTtlMillis = maxTtlMillis;
+    }
+
+    /**
+     * Returns the verified claims of the token, parsing and checking the signature only on a cache miss.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered with or expired.
+     */
+    public Claims verify(String token) {
+        ByteBuffer key = ByteBuffer.wrap(TokenDigest.sha256(token));
+        Claims claims = cache.get(key);
+        if (claims != null) {
+            return claims;
+        }
+
+        claims = jwtUtil.extractAllClaims(token);
+        long expiresAt = System.currentTimeMillis() + maxTtlMillis;
+        if (claims.getExpiration() != null) {
+            expiresAt = Math.min(expiresAt, claims.getExpiration().getTime());
+        }
+        cache.put(key, claims, expiresAt);
+        return claims;
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,37 @@
+package com.taskmanager.service;
+
+import com.taskmanager.domain.Task;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A committed change of a task or project, published by the services and pushed to clients by
+ * {@link ChangeFeed}.
+ *
+ * @param type     {@code task.created}, {@code project.deleted} and so on.
+ * @param version  the version after the change; the version last seen for deletes.
+ * @param audience ids of the users the change concerns. Admins receive every change.
+ */
+public record ChangeEvent(String type, Long id, long version, Set<Long> audience) {
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+
+    /**
+     * A change that concerns the creator and the assignee of the task.
+     */
+    public static ChangeEvent ofTask(String action, Task task) {
+        Set<Long> audience = new HashSet<>(2);
+        audience.add(task.getCreator().getId());
+        if (task.getAssignee() != null) {
+            audience.add(task.getAssignee().getId());
+        }
+        return new ChangeEvent("task." + action, task.getId(), task.getVersion(), audience);
+    }
+
+    public static ChangeEvent ofProject(String action, Long id, long version, Set<Long> audience) {
+        return new ChangeEvent("project." + action, id, version, audience);
+    }
+}
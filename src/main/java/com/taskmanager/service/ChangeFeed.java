@@ -0,0 +1,415 @@
+package com.taskmanager.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process bus that pushes committed {@link ChangeEvent}s to Server-Sent Events subscribers.
+ * <p>
+ * A subscriber is an async request and holds no thread while idle. Publishing only appends to each
+ * recipient's ring buffer; a small pool of sender threads writes the buffers out. When a subscriber falls
+ * {@code buffer-size} events behind, its oldest events are dropped and it receives a {@code resync} event
+ * before the rest. It should then reload what it shows, e.g. through {@code GET /api/tasks/changes}.
+ * <p>
+ * Writes block while a client does not read. A subscriber whose write takes longer than {@code send-timeout-ms}
+ * is evicted: it gets no more events, and a sender thread is added in place of the one it holds until the
+ * servlet container fails the write, after its connection timeout, and its feed ends. The pool never grows
+ * beyond {@code max-sender-threads}: once that many threads are held, the other subscribers share what is
+ * left until writes fail and give their threads back.
+ */
+@Slf4j
+@Component
+public class ChangeFeed implements SmartLifecycle {
+
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final int senderThreads;
+    private final int maxSenderThreads;
+    private final long sendTimeoutNanos;
+    private final Map<Long, Set<Subscriber>> subscribersByUser = new ConcurrentHashMap<>();
+    private final Set<Subscriber> admins = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong resyncCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final ReentrantLock resizeLock = new ReentrantLock();
+    private int stalledSenders;
+
+    private volatile ThreadPoolExecutor senders;
+    private volatile ScheduledExecutorService watchdog;
+
+    public ChangeFeed(
+            @Value("${taskmanager.feed.buffer-size:256}") int bufferSize,
+            @Value("${taskmanager.feed.timeout-ms:1800000}") long timeoutMillis,
+            @Value("${taskmanager.feed.sender-threads:2}") int senderThreads,
+            @Value("${taskmanager.feed.max-sender-threads:16}") int maxSenderThreads,
+            @Value("${taskmanager.feed.send-timeout-ms:10000}") long sendTimeoutMillis) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.senderThreads = senderThreads;
+        this.maxSenderThreads = Math.max(senderThreads, maxSenderThreads);
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+    }
+
+    /**
+     * Opens a feed of the changes that concern {@code userId}, or of all changes for an admin. The feed
+     * ends after the configured timeout; clients reconnect and reload.
+     */
+    public SseEmitter subscribe(Long userId, boolean admin) {
+        return subscribe(new SseEmitter(timeoutMillis), userId, admin);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long userId, boolean admin) {
+        Subscriber subscriber = new Subscriber(emitter, userId, admin);
+        if (admin) {
+            admins.add(subscriber);
+        } else {
+            subscribersByUser.compute(userId, (id, subscribers) -> {
+                Set<Subscriber> set = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+                set.add(subscriber);
+                return set;
+            });
+        }
+        subscriberCount.incrementAndGet();
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        return emitter;
+    }
+
+    /**
+     * Fans the event out once its transaction has committed, or right away when published outside one.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publish(ChangeEvent event) {
+        admins.forEach(subscriber -> subscriber.offer(event));
+        for (Long userId : event.audience()) {
+            Set<Subscriber> subscribers = subscribersByUser.get(userId);
+            if (subscribers != null) {
+                subscribers.forEach(subscriber -> subscriber.offer(event));
+            }
+        }
+    }
+
+    /**
+     * Writes a comment to every subscriber, so that proxies keep idle connections open and closed ones
+     * are noticed.
+     */
+    @Scheduled(fixedDelayString = "${taskmanager.feed.heartbeat-ms:30000}",
+            initialDelayString = "${taskmanager.feed.heartbeat-ms:30000}")
+    public void heartbeat() {
+        admins.forEach(Subscriber::ping);
+        subscribersByUser.values().forEach(subscribers -> subscribers.forEach(Subscriber::ping));
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public long getResyncCount() {
+        return resyncCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public int getSenderThreadCount() {
+        ThreadPoolExecutor executor = senders;
+        return executor == null ? 0 : executor.getPoolSize();
+    }
+
+    @Override
+    public void start() {
+        AtomicInteger threads = new AtomicInteger();
+        // A subscriber is queued at most once, see Subscriber.schedule, so the queue is bounded by the subscribers.
+        senders = new ThreadPoolExecutor(senderThreads, maxSenderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "change-feed-sender-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "change-feed-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos) / 2);
+        watchdog.scheduleWithFixedDelay(this::evictStalled, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ends every feed before the web server stops, so that shutdown does not wait for their timeout.
+     */
+    @Override
+    public void stop() {
+        ExecutorService executor = senders;
+        senders = null;
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+        admins.forEach(subscriber -> subscriber.emitter.complete());
+        subscribersByUser.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return senders != null;
+    }
+
+    private void evictStalled() {
+        long now = System.nanoTime();
+        admins.forEach(subscriber -> subscriber.evictIfStalled(now));
+        subscribersByUser.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.evictIfStalled(now)));
+    }
+
+    /**
+     * Adds or removes the sender thread that stands in for the one a stalled subscriber holds, up to
+     * {@code max-sender-threads} in all.
+     */
+    private void resizeSenders(int delta) {
+        resizeLock.lock();
+        try {
+            stalledSenders += delta;
+            ThreadPoolExecutor executor = senders;
+            if (executor != null) {
+                executor.setCorePoolSize(Math.min(senderThreads + stalledSenders, maxSenderThreads));
+            }
+        } finally {
+            resizeLock.unlock();
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        private final Long userId;
+        private final boolean admin;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ChangeEvent[] ring = new ChangeEvent[bufferSize];
+        private int head;
+        private int size;
+        private boolean overflowed;
+        private boolean heartbeat;
+        private boolean writing;
+        private long writeStartedAt;
+        private boolean stalled;
+
+        Subscriber(SseEmitter emitter, Long userId, boolean admin) {
+            this.emitter = emitter;
+            this.userId = userId;
+            this.admin = admin;
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                if (admin) {
+                    admins.remove(this);
+                } else {
+                    subscribersByUser.computeIfPresent(userId, (id, subscribers) -> {
+                        subscribers.remove(this);
+                        return subscribers.isEmpty() ? null : subscribers;
+                    });
+                }
+                subscriberCount.decrementAndGet();
+            }
+        }
+
+        void offer(ChangeEvent event) {
+            lock.lock();
+            try {
+                if (size == ring.length) {
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    size--;
+                    overflowed = true;
+                }
+                ring[(head + size) % ring.length] = event;
+                size++;
+            } finally {
+                lock.unlock();
+            }
+            schedule();
+        }
+
+        void ping() {
+            lock.lock();
+            try {
+                heartbeat = true;
+            } finally {
+                lock.unlock();
+            }
+            schedule();
+        }
+
+        /**
+         * Evicts the subscriber if its current write has taken longer than the send timeout. Its sender sees
+         * this once the write returns, and then ends the feed.
+         */
+        void evictIfStalled(long now) {
+            lock.lock();
+            try {
+                if (!writing || stalled || now - writeStartedAt <= sendTimeoutNanos) {
+                    return;
+                }
+                stalled = true;
+            } finally {
+                lock.unlock();
+            }
+            close();
+            evictionCount.incrementAndGet();
+            resizeSenders(1);
+            log.warn("Evicted a change feed subscriber of user {} whose write took longer than {} ms", userId,
+                    TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+        }
+
+        private void schedule() {
+            ExecutorService executor = senders;
+            if (executor == null || closed.get() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this::send);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+
+        /**
+         * Writes out what is buffered until the buffer stays empty. Only one sender runs per subscriber.
+         */
+        private void send() {
+            List<ChangeEvent> events = new ArrayList<>();
+            try {
+                while (!isStalled()) {
+                    boolean resync;
+                    boolean ping;
+                    lock.lock();
+                    try {
+                        resync = overflowed;
+                        ping = heartbeat;
+                        overflowed = false;
+                        heartbeat = false;
+                        while (size > 0) {
+                            events.add(ring[head]);
+                            ring[head] = null;
+                            head = (head + 1) % ring.length;
+                            size--;
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (!resync && !ping && events.isEmpty()) {
+                        break;
+                    }
+                    if (resync) {
+                        resyncCount.incrementAndGet();
+                        write(SseEmitter.event().name("resync").data(""));
+                    }
+                    for (ChangeEvent event : events) {
+                        write(SseEmitter.event().name(event.type())
+                                .data(Map.of("id", event.id(), "version", event.version()), MediaType.APPLICATION_JSON));
+                    }
+                    if (ping && !resync && events.isEmpty()) {
+                        write(SseEmitter.event().comment("heartbeat"));
+                    }
+                    events.clear();
+                }
+                if (isStalled()) {
+                    emitter.complete();
+                    return;
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Change feed subscriber went away", e);
+                close();
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                scheduled.set(false);
+                if (isStalled()) {
+                    resizeSenders(-1);
+                }
+            }
+            if (hasPending()) {
+                schedule();
+            }
+        }
+
+        /**
+         * Sends one event, unless the subscriber was evicted while an earlier one was written.
+         */
+        private void write(SseEmitter.SseEventBuilder event) throws IOException {
+            lock.lock();
+            try {
+                if (stalled) {
+                    return;
+                }
+                writing = true;
+                writeStartedAt = System.nanoTime();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                emitter.send(event);
+            } finally {
+                lock.lock();
+                try {
+                    writing = false;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private boolean isStalled() {
+            lock.lock();
+            try {
+                return stalled;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean hasPending() {
+            lock.lock();
+            try {
+                return size > 0 || overflowed || heartbeat;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.taskmanager.service;
 
 import com.taskmanager.repository.UserRepository;
+import com.taskmanager.security.AuthenticatedUser;
+import com.taskmanager.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -12,9 +14,18 @@ import org.springframework.stereotype.Service;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         return userRepository.findByEmail(email).orElse(null);
     }
+
+    /**
+     * Loads the slim principal used for token-authenticated requests, served from {@link PrincipalCache}
+     * when possible. Unlike {@link #loadUserByUsername(String)} the result carries no password.
+     */
+    public AuthenticatedUser loadPrincipal(String email) {
+        return principalCache.get(email, key -> userRepository.findByEmail(key).map(AuthenticatedUser::of).orElse(null));
+    }
 }
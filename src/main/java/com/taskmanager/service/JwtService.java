@@ -1,10 +1,11 @@
 package com.taskmanager.service;
 
 import com.taskmanager.domain.JwpToken;
+import com.taskmanager.domain.User;
 import com.taskmanager.repository.JwpTokenRepository;
 import com.taskmanager.security.JwtUtil;
+import com.taskmanager.security.TokenDigest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -14,22 +15,30 @@ public class JwtService {
     private final JwpTokenRepository jwpTokenRepository;
     private static final JwtUtil jwtUtil = new JwtUtil();
     private final UserService userService;
+    private final TokenJournal tokenJournal;
 
     public static String extractUsername(String token) {
         return jwtUtil.extractUsername(token);
     }
 
     public void saveJwpToken(JwpToken jwpToken) {
-        jwpTokenRepository.save(jwpToken);
+        if (tokenJournal.isEnabled()) {
+            tokenJournal.submit(jwpToken);
+        } else {
+            jwpTokenRepository.save(jwpToken);
+        }
     }
 
     public JwpToken getToken(String token) {
-        return jwpTokenRepository.findByToken(token).orElse(null);
+        return jwpTokenRepository.findByTokenHash(TokenDigest.sha256(token)).orElse(null);
     }
 
 
     public boolean validateRefreshToken(String token) {
-        JwpToken jwpToken = getToken(token);
+        JwpToken jwpToken = tokenJournal.findPending(token);
+        if (jwpToken == null) {
+            jwpToken = getToken(token);
+        }
         if (jwpToken == null || jwpToken.isRevoked() || jwpToken.isExpired()) {
             return false;
         }
@@ -42,11 +51,11 @@ public class JwtService {
         }
 
         String username = jwtUtil.extractUsername(refreshToken);
-        UserDetails userDetails = userService.findByEmail(username);
-        if (userDetails == null) {
+        User user = userService.findByEmail(username);
+        if (user == null) {
             return null;
         }
 
-        return jwtUtil.generateToken(userDetails);
+        return jwtUtil.generateToken(user);
     }
 }
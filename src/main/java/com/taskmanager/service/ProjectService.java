@@ -2,30 +2,140 @@ package com.taskmanager.service;
 
 
 import com.taskmanager.domain.Project;
+import com.taskmanager.domain.User;
+import com.taskmanager.dto.ProjectPatch;
+import com.taskmanager.dto.ProjectTaskRow;
 import com.taskmanager.repository.ProjectRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ProjectService {
     private final ProjectRepository projectRepository;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProjectTaskCounts taskCounts;
 
+    /**
+     * Saves a project; a new one gets its zero task counts in the same transaction.
+     */
+    @Transactional
     public Project saveProject(Project project) {
-        return projectRepository.save(project);
+        String action = project.getId() == null ? ChangeEvent.CREATED : ChangeEvent.UPDATED;
+        Project saved = projectRepository.save(project);
+        if (ChangeEvent.CREATED.equals(action)) {
+            taskCounts.createFor(saved.getId());
+        }
+        eventPublisher.publishEvent(ChangeEvent.ofProject(action, saved.getId(), saved.getVersion(),
+                Set.of(saved.getOwner().getId())));
+        return saved;
     }
 
-    public List<Project> getProjects() {
-        return projectRepository.findAll();
+    public List<ProjectTaskRow> getProjectViews() {
+        return projectRepository.findAllViewRows();
+    }
+
+    public List<ProjectTaskRow> getProjectView(Long id) {
+        return projectRepository.findViewRowsById(id);
+    }
+
+    /**
+     * Hands every project, with its owner, to {@code consumer} in id order through a forward-only cursor,
+     * detaching each one once consumed. Tasks are not loaded.
+     */
+    @Transactional(readOnly = true)
+    public void streamProjects(Consumer<Project> consumer) {
+        try (Stream<Project> projects = projectRepository.streamAll()) {
+            projects.forEach(project -> {
+                consumer.accept(project);
+                entityManager.detach(project);
+                entityManager.detach(project.getOwner());
+            });
+        }
+    }
+
+    /**
+     * Applies the non-null fields of {@code patch} with one UPDATE that writes only those columns and
+     * {@code version}. The UPDATE only matches if {@code ownerId} owns the project and, unless
+     * {@code expectedVersion} is {@code null}, the project is still at that version.
+     *
+     * @param newOwnerId the new owner, {@code null} to keep the current one.
+     * @return the view rows of the updated project, read in the same transaction; {@code null} if no row
+     * matched.
+     */
+    @Transactional
+    public List<ProjectTaskRow> patchProject(Long id, Long ownerId, Long expectedVersion, ProjectPatch patch,
+                                             Long newOwnerId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Project> update = cb.createCriteriaUpdate(Project.class);
+        Root<Project> project = update.from(Project.class);
+        TaskService.setIfNotNull(update, project.get("title"), patch.title());
+        TaskService.setIfNotNull(update, project.get("description"), patch.description());
+        if (newOwnerId != null) {
+            update.set(project.get("owner"), entityManager.getReference(User.class, newOwnerId));
+        }
+        Path<Long> version = project.get("version");
+        update.set(version, cb.sum(version, 1L));
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(project.get("id"), id));
+        predicates.add(cb.equal(project.get("owner").get("id"), ownerId));
+        if (expectedVersion != null) {
+            predicates.add(cb.equal(version, expectedVersion));
+        }
+        update.where(predicates.toArray(Predicate[]::new));
+
+        if (entityManager.createQuery(update).executeUpdate() == 0) {
+            return null;
+        }
+        List<ProjectTaskRow> rows = projectRepository.findViewRowsById(id);
+        Set<Long> audience = newOwnerId == null || newOwnerId.equals(ownerId)
+                ? Set.of(ownerId) : Set.of(ownerId, newOwnerId);
+        eventPublisher.publishEvent(ChangeEvent.ofProject(ChangeEvent.UPDATED, id, rows.get(0).projectVersion(), audience));
+        return rows;
     }
 
     public Project findById(Long id) {
         return projectRepository.findById(id).orElse(null);
     }
 
+    /**
+     * @return the task counts of the project; {@code null} if it does not exist.
+     */
+    public ProjectTaskCounts.Stats getProjectStats(Long id) {
+        return taskCounts.find(id);
+    }
+
+    public List<ProjectTaskCounts.Stats> getProjectStats() {
+        return taskCounts.findAll();
+    }
+
+    /**
+     * Deletes a project with its tasks, publishing a deletion event for each. Its task counts go with it, by
+     * {@code ON DELETE CASCADE}.
+     */
+    @Transactional
     public void deleteProject(Long id) {
-        projectRepository.deleteById(id);
+        projectRepository.findById(id).ifPresent(project -> {
+            projectRepository.delete(project);
+            eventPublisher.publishEvent(ChangeEvent.ofProject(ChangeEvent.DELETED, id, project.getVersion(),
+                    Set.of(project.getOwner().getId())));
+            project.getTasks().forEach(task -> eventPublisher.publishEvent(ChangeEvent.ofTask(ChangeEvent.DELETED, task)));
+        });
     }
 }
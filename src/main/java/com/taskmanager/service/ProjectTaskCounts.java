@@ -0,0 +1,247 @@
+package com.taskmanager.service;
+
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of tasks of every project by status and priority, kept in {@code project_task_counts} so that
+ * the stats of a project cost one index lookup however many tasks it has.
+ * <p>
+ * Every project has a row for each status and priority from its creation on, so task writes only add
+ * deltas to existing rows, in the transaction of the write. Deltas are applied in counter order, the order in
+ * which {@link #reconcile()} locks a project's rows, so that the two cannot deadlock. Reconciliation
+ * recounts one project per transaction and corrects counts that drifted, for instance through SQL that
+ * bypassed {@link TaskService}.
+ */
+@Slf4j
+@Component
+public class ProjectTaskCounts {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String ADD =
+            "UPDATE project_task_counts SET task_count = task_count + ? WHERE project_id = ? AND status = ? AND priority = ?";
+    private static final String SET =
+            "UPDATE project_task_counts SET task_count = ? WHERE project_id = ? AND status = ? AND priority = ?";
+    private static final String INSERT =
+            "INSERT INTO project_task_counts (project_id, status, priority, task_count) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean reconcileEnabled;
+    private final AtomicLong correctionCount = new AtomicLong();
+
+    public ProjectTaskCounts(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${taskmanager.project-stats.reconcile.enabled:true}") boolean reconcileEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.reconcileEnabled = reconcileEnabled;
+    }
+
+    /**
+     * Creates the zero counts of a new project, in the transaction that inserts it.
+     */
+    public void createFor(long projectId) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Status status : Status.values()) {
+            for (Priority priority : Priority.values()) {
+                rows.add(new Object[]{projectId, status.name(), priority.name(), 0L});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    public void apply(Deltas deltas) {
+        List<Object[]> rows = new ArrayList<>();
+        deltas.deltas.forEach((counter, delta) -> {
+            if (delta != 0) {
+                rows.add(new Object[]{delta, counter.projectId(), counter.status().name(), counter.priority().name()});
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD, rows);
+        }
+    }
+
+    /**
+     * Locks the row of the task until the transaction ends, so that its status and priority cannot change
+     * meanwhile.
+     *
+     * @return the counter the task is counted in; {@code null} if there is no such task.
+     */
+    public Counter lockCounterOf(long taskId) {
+        List<Counter> counters = jdbcTemplate.query("SELECT project_id, status, priority FROM tasks WHERE id = ? FOR UPDATE",
+                (rs, row) -> new Counter(rs.getLong(1), Status.valueOf(rs.getString(2)), Priority.valueOf(rs.getString(3))),
+                taskId);
+        return counters.isEmpty() ? null : counters.get(0);
+    }
+
+    /**
+     * @return the counts of the project; {@code null} if it has none, that is if it does not exist.
+     */
+    public Stats find(long projectId) {
+        List<Stats> stats = read("SELECT project_id, status, priority, task_count FROM project_task_counts " +
+                "WHERE project_id = ?", projectId);
+        return stats.isEmpty() ? null : stats.get(0);
+    }
+
+    /**
+     * @return the counts of every project, in project id order.
+     */
+    public List<Stats> findAll() {
+        return read("SELECT project_id, status, priority, task_count FROM project_task_counts ORDER BY project_id");
+    }
+
+    /**
+     * @return how many counts reconciliation found wrong since startup.
+     */
+    public long getCorrectionCount() {
+        return correctionCount.get();
+    }
+
+    /**
+     * Recounts the tasks of every project, a batch of project ids at a time.
+     */
+    @Scheduled(fixedDelayString = "${taskmanager.project-stats.reconcile.interval-ms:3600000}",
+            initialDelayString = "${taskmanager.project-stats.reconcile.interval-ms:3600000}")
+    public void reconcile() {
+        if (!reconcileEnabled) {
+            return;
+        }
+        long corrected = 0;
+        long after = 0;
+        List<Long> ids;
+        do {
+            ids = jdbcTemplate.queryForList("SELECT id FROM projects WHERE id > ? ORDER BY id FETCH FIRST " +
+                    BATCH_SIZE + " ROWS ONLY", Long.class, after);
+            for (Long id : ids) {
+                try {
+                    Integer count = transactionTemplate.execute(status -> reconcile(id));
+                    corrected += count == null ? 0 : count;
+                } catch (DataAccessException e) {
+                    // Deleted meanwhile, or a lock timeout; the next run retries.
+                    log.warn("Could not reconcile the task counts of project {}", id, e);
+                }
+                after = id;
+            }
+        } while (ids.size() == BATCH_SIZE);
+        correctionCount.addAndGet(corrected);
+        if (corrected > 0) {
+            log.warn("Corrected {} project task counts", corrected);
+        }
+    }
+
+    /**
+     * Locks the counts of the project, so that no task write can change them meanwhile, then recounts its
+     * tasks. A write whose delta is still to come has not been counted yet either: until it commits, its
+     * task is seen as it was.
+     *
+     * @return the number of counts corrected, including those that were missing.
+     */
+    int reconcile(long projectId) {
+        Map<Counter, Long> stored = new HashMap<>();
+        jdbcTemplate.query("SELECT status, priority, task_count FROM project_task_counts WHERE project_id = ? " +
+                        "ORDER BY status, priority FOR UPDATE",
+                rs -> {
+                    stored.put(new Counter(projectId, Status.valueOf(rs.getString(1)), Priority.valueOf(rs.getString(2))),
+                            rs.getLong(3));
+                }, projectId);
+        Map<Counter, Long> actual = new HashMap<>();
+        jdbcTemplate.query("SELECT status, priority, COUNT(*) FROM tasks WHERE project_id = ? GROUP BY status, priority",
+                rs -> {
+                    actual.put(new Counter(projectId, Status.valueOf(rs.getString(1)), Priority.valueOf(rs.getString(2))),
+                            rs.getLong(3));
+                }, projectId);
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (Status status : Status.values()) {
+            for (Priority priority : Priority.values()) {
+                Counter counter = new Counter(projectId, status, priority);
+                long count = actual.getOrDefault(counter, 0L);
+                Long storedCount = stored.get(counter);
+                if (storedCount == null) {
+                    inserts.add(new Object[]{projectId, status.name(), priority.name(), count});
+                } else if (storedCount != count) {
+                    updates.add(new Object[]{count, projectId, status.name(), priority.name()});
+                }
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, inserts);
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET, updates);
+        }
+        return inserts.size() + updates.size();
+    }
+
+    private List<Stats> read(String sql, Object... args) {
+        List<Stats> stats = new ArrayList<>();
+        jdbcTemplate.query(sql, rs -> {
+            long projectId = rs.getLong(1);
+            if (stats.isEmpty() || stats.get(stats.size() - 1).projectId() != projectId) {
+                stats.add(new Stats(projectId, new EnumMap<>(Status.class)));
+            }
+            stats.get(stats.size() - 1).counts()
+                    .computeIfAbsent(Status.valueOf(rs.getString(2)), status -> new EnumMap<>(Priority.class))
+                    .put(Priority.valueOf(rs.getString(3)), rs.getLong(4));
+        }, args);
+        return stats;
+    }
+
+    /**
+     * Task counts of a project, by status then priority.
+     */
+    public record Stats(long projectId, Map<Status, Map<Priority, Long>> counts) {
+    }
+
+    /**
+     * Changes to the counts made by one transaction, summed per project, status and priority.
+     */
+    public static final class Deltas {
+        private final Map<Counter, Long> deltas = new TreeMap<>();
+
+        public Deltas add(long projectId, Status status, Priority priority, long delta) {
+            deltas.merge(new Counter(projectId, status, priority), delta, Long::sum);
+            return this;
+        }
+
+        public Deltas move(Counter from, Status toStatus, Priority toPriority) {
+            return add(from.projectId(), from.status(), from.priority(), -1).add(from.projectId(), toStatus, toPriority, 1);
+        }
+    }
+
+    /**
+     * One count of a project. Counters are ordered as {@code ORDER BY project_id, status, priority} orders
+     * their rows: enum constants by name.
+     */
+    public record Counter(long projectId, Status status, Priority priority) implements Comparable<Counter> {
+
+        private static final Comparator<Counter> ORDER = Comparator.comparingLong(Counter::projectId)
+                .thenComparing(key -> key.status().name())
+                .thenComparing(key -> key.priority().name());
+
+        @Override
+        public int compareTo(Counter other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
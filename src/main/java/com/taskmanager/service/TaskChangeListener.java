@@ -0,0 +1,28 @@
+package com.taskmanager.service;
+
+import com.taskmanager.domain.Task;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Stamps every task Hibernate writes with a {@link TaskChangeLog} sequence number, and leaves a tombstone
+ * for every task it deletes, including tasks removed by cascade with their project.
+ */
+@RequiredArgsConstructor
+public class TaskChangeListener {
+
+    private final TaskChangeLog changeLog;
+
+    @PrePersist
+    @PreUpdate
+    void stamp(Task task) {
+        task.setChangeSeq(changeLog.next());
+    }
+
+    @PreRemove
+    void recordDeletion(Task task) {
+        changeLog.recordDeletion(task.getId());
+    }
+}
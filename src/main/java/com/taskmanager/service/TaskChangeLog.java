@@ -0,0 +1,219 @@
+package com.taskmanager.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out the {@code change_seq} stamps of task writes and tombstones, see {@link TaskService#getChanges}.
+ * <p>
+ * Stamps are drawn from the {@code task_change_seq} sequence, so no two writes ever get the same one, whichever
+ * instance makes them. Each value drawn reserves a block of {@link #STAMP_BLOCK_SIZE} stamps, which are handed
+ * out in memory, so a batch of inserts does not pay a sequence round-trip per task. Stamps are taken before
+ * their transaction commits, though, so a larger stamp can become visible before a smaller one, and a client
+ * that synced up to the larger stamp would never see the smaller. The log therefore remembers the first stamp
+ * of every open transaction, and {@link #watermark()} stops short of the oldest one. Only open transactions of
+ * this instance are known, so only one instance may write tasks.
+ * <p>
+ * Tombstones are kept for {@code taskmanager.changes.tombstone-retention-ms}, then pruned in stamp order; see
+ * {@link #prunedThrough()}.
+ */
+@Slf4j
+@Component
+public class TaskChangeLog {
+
+    private static final int PRUNE_CHUNK_SIZE = 1000;
+    /**
+     * The increment of {@code task_change_seq}, see V12.
+     */
+    static final int STAMP_BLOCK_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long tombstoneRetentionMillis;
+    private final AtomicLong last = new AtomicLong();
+    private final TreeSet<Long> openTransactions = new TreeSet<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long nextStamp;
+    private long blockEnd;
+    private volatile String nextStampSql;
+    private volatile boolean loaded;
+
+    public TaskChangeLog(
+            JdbcTemplate jdbcTemplate,
+            @Value("${taskmanager.changes.tombstone-retention-ms:2592000000}") long tombstoneRetentionMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tombstoneRetentionMillis = tombstoneRetentionMillis;
+    }
+
+    /**
+     * @return the next stamp. Within a transaction, the transaction holds back {@link #watermark()} until
+     * it completes.
+     */
+    public long next() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            load();
+            return take();
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return take();
+        }
+
+        long first;
+        lock.lock();
+        try {
+            load();
+            first = take();
+            openTransactions.add(first);
+        } finally {
+            lock.unlock();
+        }
+        TransactionSynchronizationManager.bindResource(this, first);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TaskChangeLog.this);
+                lock.lock();
+                try {
+                    openTransactions.remove(first);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+        return first;
+    }
+
+    /**
+     * @return the largest stamp up to which every change is committed or rolled back.
+     */
+    public long watermark() {
+        lock.lock();
+        try {
+            load();
+            return openTransactions.isEmpty() ? last.get() : openTransactions.first() - 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Leaves a tombstone for a deleted task, written in the current transaction.
+     */
+    public void recordDeletion(Long taskId) {
+        jdbcTemplate.update("INSERT INTO task_tombstones (task_id, change_seq, deleted_at) VALUES (?, ?, ?)",
+                taskId, next(), Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * @return up to {@code limit} tombstones stamped after {@code since} and up to {@code until}, in stamp order.
+     */
+    public List<Tombstone> findTombstones(long since, long until, int limit) {
+        return jdbcTemplate.query(
+                "SELECT task_id, change_seq FROM task_tombstones WHERE change_seq > ? AND change_seq <= ? " +
+                        "ORDER BY change_seq FETCH FIRST ? ROWS ONLY",
+                (rs, row) -> new Tombstone(rs.getLong(1), rs.getLong(2)), since, until, limit);
+    }
+
+    /**
+     * @return the largest stamp whose tombstones have been pruned. Changes since an older stamp cannot be
+     * listed completely any more.
+     */
+    public long prunedThrough() {
+        return jdbcTemplate.queryForObject("SELECT pruned_through FROM task_tombstone_horizon WHERE id = 1", Long.class);
+    }
+
+    /**
+     * Deletes the tombstones older than the retention, a chunk at a time in stamp order, so that every stamp
+     * up to {@link #prunedThrough()} is gone and every later one is kept. The horizon moves before the
+     * tombstones are deleted, so that a reader that checks it after reading tombstones never misses one.
+     */
+    @Scheduled(fixedDelayString = "${taskmanager.changes.prune.interval-ms:3600000}",
+            initialDelayString = "${taskmanager.changes.prune.interval-ms:3600000}")
+    public void pruneTombstones() {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - tombstoneRetentionMillis);
+        long watermark = watermark();
+        long pruned = 0;
+        int chunk;
+        do {
+            List<Tombstone> tombstones = jdbcTemplate.query("SELECT change_seq, deleted_at FROM task_tombstones " +
+                            "WHERE change_seq <= ? ORDER BY change_seq FETCH FIRST ? ROWS ONLY",
+                    (rs, row) -> rs.getTimestamp(2).before(cutoff) ? new Tombstone(null, rs.getLong(1)) : null,
+                    watermark, PRUNE_CHUNK_SIZE);
+            chunk = tombstones.indexOf(null) < 0 ? tombstones.size() : tombstones.indexOf(null);
+            if (chunk > 0) {
+                long through = tombstones.get(chunk - 1).changeSeq();
+                jdbcTemplate.update("UPDATE task_tombstone_horizon SET pruned_through = ? WHERE id = 1 AND pruned_through < ?",
+                        through, through);
+                pruned += jdbcTemplate.update("DELETE FROM task_tombstones WHERE change_seq <= ?", through);
+            }
+        } while (chunk == PRUNE_CHUNK_SIZE);
+        if (pruned > 0) {
+            log.info("Pruned {} task tombstones", pruned);
+        }
+    }
+
+    /**
+     * Hands out the next stamp of the current block, drawing a new block from the sequence once it is used up.
+     * Stamps are handed out under the lock, so they grow in the order they are taken.
+     */
+    private long take() {
+        lock.lock();
+        try {
+            if (nextStamp == blockEnd) {
+                nextStamp = jdbcTemplate.queryForObject(nextStampSql(), Long.class);
+                blockEnd = nextStamp + STAMP_BLOCK_SIZE;
+            }
+            long stamp = nextStamp++;
+            last.accumulateAndGet(stamp, Math::max);
+            return stamp;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String nextStampSql() {
+        String sql = nextStampSql;
+        if (sql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            sql = "PostgreSQL".equals(product)
+                    ? "SELECT nextval('task_change_seq')"
+                    : "SELECT NEXT VALUE FOR task_change_seq";
+            nextStampSql = sql;
+        }
+        return sql;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (!loaded) {
+                Long max = jdbcTemplate.queryForObject("SELECT GREATEST(" +
+                        "(SELECT COALESCE(MAX(change_seq), 0) FROM tasks), " +
+                        "(SELECT COALESCE(MAX(change_seq), 0) FROM task_tombstones))", Long.class);
+                last.accumulateAndGet(max, Math::max);
+                loaded = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public record Tombstone(Long taskId, long changeSeq) {
+    }
+}
@@ -0,0 +1,415 @@
+package com.taskmanager.service;
+
+import com.taskmanager.domain.Task;
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves tasks that are still {@code TODO} or {@code IN_PROGRESS} to {@code EXPIRED} once their due date
+ * passes.
+ * <p>
+ * Pending deadlines are held in a {@link TimingWheel}, but only those within {@code horizon-ms} of now.
+ * Deadlines further out are read into the wheel as the horizon advances, by a range scan of the
+ * {@code (status, due_date)} index, so memory is bounded by the deadlines of one horizon. On startup,
+ * tasks that fell due while the application was down are found by the same index, without a full table
+ * scan. {@link TaskService} re-arms a task when a write commits, a newer version of a task replacing an older
+ * one whatever the order in which their commits are applied. A timer left armed by an older version is
+ * harmless: when it fires, the task is read again and re-armed or dropped as it now is.
+ * <p>
+ * Expired tasks are updated in JDBC batches. Each update is guarded by the task's version, status and due
+ * date, so a stale timer never expires a task whose deadline moved. Every expired task gets its own
+ * {@link TaskChangeLog} stamp and a {@link ChangeEvent}, moves to {@code EXPIRED} in its project's
+ * {@link ProjectTaskCounts} and leaves the {@link TaskQueue}.
+ * <p>
+ * The wheel ticks on a thread of its own, so that long {@code @Scheduled} jobs never delay deadlines. Timers
+ * leave the wheel when they fire; if expiring their tasks fails, the next tick finds them again by a range
+ * scan of the overdue tasks, as on startup.
+ */
+@Slf4j
+@Component
+public class TaskExpiry implements SmartLifecycle {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String PENDING = "status IN ('TODO', 'IN_PROGRESS')";
+    private static final String EXPIRE =
+            "UPDATE tasks SET status = 'EXPIRED', version = version + 1, updated_at = ?, change_seq = ? " +
+                    "WHERE id = ? AND version = ? AND " + PENDING + " AND due_date <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskChangeLog changeLog;
+    private final ProjectTaskCounts taskCounts;
+    private final TaskQueue taskQueue;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final long tickMillis;
+    private final long horizonMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private TimingWheel wheel;
+    /**
+     * Deadlines up to here are in the wheel.
+     */
+    private long loadedUntil;
+    /**
+     * Set when timers fired but their tasks could not be expired.
+     */
+    private volatile boolean catchUpPending;
+    private volatile boolean running;
+    private volatile ScheduledExecutorService executor;
+
+    public TaskExpiry(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            TaskChangeLog changeLog,
+            ProjectTaskCounts taskCounts,
+            TaskQueue taskQueue,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${taskmanager.expiry.enabled:true}") boolean enabled,
+            @Value("${taskmanager.expiry.tick-ms:1000}") long tickMillis,
+            @Value("${taskmanager.expiry.horizon-ms:86400000}") long horizonMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.changeLog = changeLog;
+        this.taskCounts = taskCounts;
+        this.taskQueue = taskQueue;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.tickMillis = tickMillis;
+        this.horizonMillis = horizonMillis;
+    }
+
+    /**
+     * Arms, re-arms or disarms the deadlines of the tasks as they are once the current transaction commits,
+     * or right away outside a transaction, unless a newer version of a task is already armed.
+     */
+    public void scheduleAfterCommit(Collection<Task> tasks) {
+        if (!running) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            schedule(deadlinesOf(tasks));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // Read once committed: the versions of updated tasks are only incremented when they are flushed.
+                schedule(deadlinesOf(tasks));
+            }
+        });
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return wheel == null ? 0 : wheel.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Expires what fell due while the application was down, then fills the wheel with the deadlines of
+     * the first horizon.
+     */
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long caughtUp = catchUp(now);
+        lock.lock();
+        try {
+            wheel = new TimingWheel(now / tickMillis);
+            loadedUntil = now;
+        } finally {
+            lock.unlock();
+        }
+        load(now);
+        running = true;
+        executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "task-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        log.info("Expired {} overdue tasks; {} deadlines pending", caughtUp, getPendingCount());
+    }
+
+    /**
+     * Lets a tick that is expiring tasks finish its batch.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        ScheduledExecutorService scheduled = executor;
+        executor = null;
+        if (scheduled != null) {
+            scheduled.shutdown();
+            try {
+                scheduled.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Catches up before the web server starts taking requests.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void tick() {
+        if (!running) {
+            return;
+        }
+        try {
+            advance(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            // A failed tick must not cancel the schedule; the next one retries what this one dropped.
+            log.warn("Expiring tasks failed", e);
+        }
+    }
+
+    /**
+     * Expires, in batches, every pending task due by {@code now}.
+     *
+     * @return the number of tasks expired.
+     */
+    long catchUp(long now) {
+        Timestamp until = new Timestamp(now);
+        long total = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM tasks WHERE " + PENDING + " AND due_date <= ? " +
+                    "ORDER BY due_date FETCH FIRST " + BATCH_SIZE + " ROWS ONLY", Long.class, until);
+            int expired = expire(ids, now);
+            total += expired;
+            if (ids.size() < BATCH_SIZE || expired == 0) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * Moves the wheel to {@code now}, extending the horizon first if half of it has passed. If the tasks of
+     * fired timers could not be expired, a scan of the overdue tasks expires them on the next call.
+     */
+    void advance(long now) {
+        if (catchUpPending) {
+            catchUpPending = false;
+            try {
+                catchUp(now);
+            } catch (RuntimeException e) {
+                catchUpPending = true;
+                throw e;
+            }
+        }
+        load(now);
+        List<Long> due;
+        lock.lock();
+        try {
+            due = wheel.advance(now / tickMillis);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            for (int from = 0; from < due.size(); from += BATCH_SIZE) {
+                expire(due.subList(from, Math.min(from + BATCH_SIZE, due.size())), now);
+            }
+        } catch (RuntimeException e) {
+            catchUpPending = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the deadlines between the loaded horizon and {@code now + horizon}, if half of the horizon has
+     * passed. The new horizon is published before the read, so that tasks committed meanwhile arm
+     * themselves; a task read with a stale due date is corrected when its timer fires. If the read fails,
+     * the horizon is moved back so that the next call reads the range again.
+     */
+    private void load(long now) {
+        long from;
+        long until = now + horizonMillis;
+        lock.lock();
+        try {
+            if (now + horizonMillis / 2 < loadedUntil) {
+                return;
+            }
+            from = loadedUntil;
+            loadedUntil = until;
+        } finally {
+            lock.unlock();
+        }
+        List<Deadline> deadlines;
+        try {
+            deadlines = jdbcTemplate.query(
+                    "SELECT id, version, due_date FROM tasks WHERE " + PENDING + " AND due_date > ? AND due_date <= ?",
+                    (rs, row) -> new Deadline(rs.getLong(1), rs.getLong(2), rs.getTimestamp(3).getTime()),
+                    new Timestamp(from), new Timestamp(until));
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                if (loadedUntil == until) {
+                    loadedUntil = from;
+                }
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        schedule(deadlines);
+    }
+
+    private void schedule(List<Deadline> deadlines) {
+        lock.lock();
+        try {
+            for (Deadline deadline : deadlines) {
+                if (wheel.version(deadline.id()) > deadline.version()) {
+                    continue;
+                }
+                if (deadline.dueMillis() == null || deadline.dueMillis() > loadedUntil) {
+                    wheel.cancel(deadline.id());
+                } else {
+                    wheel.schedule(deadline.id(), deadline.version(),
+                            Math.floorDiv(deadline.dueMillis() + tickMillis - 1, tickMillis));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Expires the given tasks that are still pending and due by {@code now}, and re-arms those whose due
+     * date has moved since they were scheduled.
+     *
+     * @return the number of tasks expired.
+     */
+    private int expire(List<Long> ids, long now) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Timestamp until = new Timestamp(now);
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Integer expired = transactionTemplate.execute(status -> {
+            List<Candidate> candidates = jdbcTemplate.query(
+                    "SELECT id, version, due_date, creator_id, assignee_id, project_id, status, priority FROM tasks " +
+                            "WHERE id IN (" + placeholders + ") AND " + PENDING,
+                    (rs, row) -> new Candidate(rs.getLong(1), rs.getLong(2), rs.getTimestamp(3),
+                            rs.getLong(4), (Long) rs.getObject(5), new ProjectTaskCounts.Counter(rs.getLong(6),
+                            Status.valueOf(rs.getString(7)), Priority.valueOf(rs.getString(8)))),
+                    ids.toArray());
+
+            List<Candidate> due = new ArrayList<>();
+            List<Deadline> moved = new ArrayList<>();
+            for (Candidate candidate : candidates) {
+                if (candidate.dueDate() != null && !candidate.dueDate().after(until)) {
+                    due.add(candidate);
+                } else if (candidate.dueDate() != null) {
+                    moved.add(new Deadline(candidate.id(), candidate.version(), candidate.dueDate().getTime()));
+                }
+            }
+            if (!moved.isEmpty() && running) {
+                schedule(moved);
+            }
+
+            Timestamp updatedAt = Timestamp.valueOf(LocalDateTime.now());
+            int[][] counts = jdbcTemplate.batchUpdate(EXPIRE, due, BATCH_SIZE, (statement, candidate) -> {
+                statement.setTimestamp(1, updatedAt);
+                statement.setLong(2, changeLog.next());
+                statement.setLong(3, candidate.id());
+                statement.setLong(4, candidate.version());
+                statement.setTimestamp(5, until);
+            });
+            ProjectTaskCounts.Deltas deltas = new ProjectTaskCounts.Deltas();
+            int count = 0;
+            int i = 0;
+            for (int[] batch : counts) {
+                for (int updated : batch) {
+                    Candidate candidate = due.get(i++);
+                    if (updated > 0) {
+                        count++;
+                        deltas.move(candidate.counter(), Status.EXPIRED, candidate.counter().priority());
+                        taskQueue.removeAfterCommit(candidate.id());
+                        eventPublisher.publishEvent(new ChangeEvent("task." + ChangeEvent.UPDATED, candidate.id(),
+                                candidate.version() + 1, candidate.audience()));
+                    }
+                }
+            }
+            taskCounts.apply(deltas);
+            return count;
+        });
+        expiredCount.addAndGet(expired);
+        return expired;
+    }
+
+    private static List<Deadline> deadlinesOf(Collection<Task> tasks) {
+        List<Deadline> deadlines = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            boolean pending = task.getStatus() == Status.TODO || task.getStatus() == Status.IN_PROGRESS;
+            deadlines.add(new Deadline(task.getId(), task.getVersion(),
+                    pending && task.getDueDate() != null ? millis(task.getDueDate()) : null));
+        }
+        return deadlines;
+    }
+
+    private static long millis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Deadline(long id, long version, Long dueMillis) {
+    }
+
+    private record Candidate(long id, long version, Timestamp dueDate, long creatorId, Long assigneeId,
+                             ProjectTaskCounts.Counter counter) {
+
+        Set<Long> audience() {
+            Set<Long> audience = new HashSet<>(2);
+            audience.add(creatorId);
+            if (assigneeId != null) {
+                audience.add(assigneeId);
+            }
+            return audience;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.taskmanager.service;
+
+import com.taskmanager.domain.Task;
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory queues of the {@code TODO} tasks, one per assignee and one for the unassigned pool, behind
+ * {@code GET /api/tasks/next} and {@code POST /api/tasks/claim}. Each queue is ordered by priority, highest
+ * first, then by due date, tasks without one last, then by id.
+ * <p>
+ * The queues are skip lists, so concurrent claimers take distinct tasks from the head with a compare-and-set
+ * and never block each other. A task taken from a queue still has to be claimed in the database, by an
+ * UPDATE guarded by the version it was queued at, see {@link TaskService#claimNextTask}; a stale entry fails
+ * that guard and is requeued as the task now is.
+ * <p>
+ * The queues are built from the database before the web server starts. From then on {@link TaskQueueListener},
+ * {@link TaskService} and {@link TaskExpiry} update them when a write commits, a newer version of a task
+ * replacing an older one whatever the order in which their commits are applied.
+ */
+@Slf4j
+@Component
+public class TaskQueue implements SmartLifecycle {
+
+    /**
+     * Key of the queue of unassigned tasks; user ids start at 1.
+     */
+    static final long POOL = 0;
+    private static final int FETCH_SIZE = 1000;
+    private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::priority, Comparator.reverseOrder())
+            .thenComparingLong(Entry::dueMillis)
+            .thenComparingLong(Entry::id);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentHashMap<Long, NavigableSet<Entry>> queues = new ConcurrentHashMap<>();
+    /**
+     * The queued entry of every task, to take it out of its queue when the task changes.
+     */
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong claimCount = new AtomicLong();
+    private final AtomicLong conflictCount = new AtomicLong();
+    private volatile boolean running;
+
+    public TaskQueue(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Queues the task if it is {@code TODO}, or takes it out of the queues otherwise, unless a newer version
+     * of it is already queued.
+     */
+    public void offer(Entry entry, boolean claimable) {
+        entries.compute(entry.id(), (id, queued) -> {
+            if (queued != null && queued.version() > entry.version()) {
+                return queued;
+            }
+            if (queued != null) {
+                queue(queued.queue()).remove(queued);
+            }
+            if (!claimable) {
+                return null;
+            }
+            queue(entry.queue()).add(entry);
+            return entry;
+        });
+    }
+
+    public void remove(long id) {
+        entries.computeIfPresent(id, (key, queued) -> {
+            queue(queued.queue()).remove(queued);
+            return null;
+        });
+    }
+
+    /**
+     * Queues or dequeues the task as it is now once the current transaction commits, or right away outside
+     * a transaction.
+     */
+    public void offerAfterCommit(Task task) {
+        afterCommit(task.getId(), new Write(entryOf(task), task.getStatus() == Status.TODO));
+    }
+
+    public void removeAfterCommit(Long id) {
+        afterCommit(id, new Write(null, false));
+    }
+
+    /**
+     * Takes the first task of the user's queue and the pool, whichever comes first. The entry stays known, so
+     * that a write committed meanwhile still replaces it, until {@link #claimed} or {@link #requeue} is
+     * called. If the current transaction rolls back, whatever made it fail, the entry is put back.
+     *
+     * @return the entry taken; {@code null} if both queues are empty.
+     */
+    public Entry poll(long userId) {
+        while (true) {
+            NavigableSet<Entry> own = queues.get(userId);
+            NavigableSet<Entry> pool = queues.get(POOL);
+            Entry ownHead = head(own);
+            Entry poolHead = head(pool);
+            if (ownHead == null && poolHead == null) {
+                return null;
+            }
+            NavigableSet<Entry> from = poolHead == null || ownHead != null && ORDER.compare(ownHead, poolHead) <= 0
+                    ? own : pool;
+            Entry entry = from.pollFirst();
+            if (entry != null) {
+                requeueOnRollback(entry);
+                return entry;
+            }
+        }
+    }
+
+    /**
+     * Forgets the polled entry of a claimed task once the current transaction commits; {@link #poll} puts it
+     * back if the transaction rolls back.
+     */
+    public void claimed(Entry entry) {
+        claimCount.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            entries.remove(entry.id(), entry);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    entries.remove(entry.id(), entry);
+                } else {
+                    claimCount.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces a polled entry that turned out to be stale by the task as it is now.
+     *
+     * @param task the task, {@code null} if it no longer exists.
+     */
+    public void requeue(Entry polled, Task task) {
+        conflictCount.incrementAndGet();
+        requeue(polled, task == null ? null : entryOf(task), task != null && task.getStatus() == Status.TODO);
+    }
+
+    /**
+     * @return the first {@code limit} tasks that {@link #poll} would return, without taking them.
+     */
+    public List<Entry> peek(long userId, int limit) {
+        List<Entry> next = new ArrayList<>(limit);
+        Iterator<Entry> own = iterator(queues.get(userId));
+        Iterator<Entry> pool = iterator(queues.get(POOL));
+        Entry ownHead = own.hasNext() ? own.next() : null;
+        Entry poolHead = pool.hasNext() ? pool.next() : null;
+        while (next.size() < limit && (ownHead != null || poolHead != null)) {
+            if (poolHead == null || ownHead != null && ORDER.compare(ownHead, poolHead) <= 0) {
+                next.add(ownHead);
+                ownHead = own.hasNext() ? own.next() : null;
+            } else {
+                next.add(poolHead);
+                poolHead = pool.hasNext() ? pool.next() : null;
+            }
+        }
+        return next;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getClaimCount() {
+        return claimCount.get();
+    }
+
+    /**
+     * @return how many polled tasks could not be claimed because they had changed since they were queued.
+     */
+    public long getConflictCount() {
+        return conflictCount.get();
+    }
+
+    /**
+     * Reads the {@code TODO} tasks through a forward-only cursor over the {@code (status, id)} index.
+     */
+    @Override
+    public void start() {
+        long start = System.nanoTime();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            // PostgreSQL only honours the fetch size inside a transaction.
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, version, priority, due_date, assignee_id, project_id FROM tasks WHERE status = 'TODO'",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(FETCH_SIZE);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        Timestamp dueDate = rows.getTimestamp(4);
+                        long assigneeId = rows.getLong(5);
+                        long queue = rows.wasNull() ? POOL : assigneeId;
+                        offer(new Entry(rows.getLong(1), rows.getLong(2), Priority.valueOf(rows.getString(3)),
+                                dueDate == null ? Long.MAX_VALUE : dueDate.getTime(), queue, rows.getLong(6)), true);
+                    }
+                }
+            } finally {
+                connection.commit();
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+        running = true;
+        log.info("Queued {} tasks to claim in {} ms", entries.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Builds the queues before the web server starts taking requests.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Otherwise the entry would stay out of every queue, and the task unclaimable, until a write replaced it.
+     * An entry already requeued as stale has been replaced, so putting it back does nothing.
+     */
+    private void requeueOnRollback(Entry polled) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    requeue(polled, polled, true);
+                }
+            }
+        });
+    }
+
+    private void requeue(Entry polled, Entry current, boolean claimable) {
+        entries.compute(polled.id(), (id, queued) -> {
+            if (queued != polled) {
+                // A write committed since the poll has replaced or removed the task already.
+                return queued;
+            }
+            if (!claimable) {
+                return null;
+            }
+            queue(current.queue()).add(current);
+            return current;
+        });
+    }
+
+    private NavigableSet<Entry> queue(long key) {
+        return queues.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(ORDER));
+    }
+
+    private void afterCommit(Long id, Write write) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(id, write);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, Write> pending = (Map<Long, Write>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<Long, Write> writes = new LinkedHashMap<>();
+            pending = writes;
+            TransactionSynchronizationManager.bindResource(this, writes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    writes.forEach(TaskQueue.this::apply);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TaskQueue.this);
+                }
+            });
+        }
+        pending.put(id, write);
+    }
+
+    private void apply(Long id, Write write) {
+        if (write.entry() == null) {
+            remove(id);
+        } else {
+            offer(write.entry(), write.claimable());
+        }
+    }
+
+    private static Entry head(NavigableSet<Entry> queue) {
+        Iterator<Entry> iterator = iterator(queue);
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static Iterator<Entry> iterator(NavigableSet<Entry> queue) {
+        return queue == null ? Collections.emptyIterator() : queue.iterator();
+    }
+
+    private static Entry entryOf(Task task) {
+        LocalDateTime dueDate = task.getDueDate();
+        return new Entry(task.getId(), task.getVersion(), task.getPriority(),
+                dueDate == null ? Long.MAX_VALUE : dueDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                task.getAssignee() == null ? POOL : task.getAssignee().getId(), task.getProject().getId());
+    }
+
+    /**
+     * A queued task: what orders it, the version it was queued at, and the queue and project it is in.
+     */
+    public record Entry(long id, long version, Priority priority, long dueMillis, long queue, long projectId) {
+    }
+
+    /**
+     * A committed write of a task; a {@code null} entry for a deleted task.
+     */
+    private record Write(Entry entry, boolean claimable) {
+    }
+}
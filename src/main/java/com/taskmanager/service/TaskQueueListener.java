@@ -0,0 +1,28 @@
+package com.taskmanager.service;
+
+import com.taskmanager.domain.Task;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Keeps {@link TaskQueue} current with the tasks Hibernate writes, including tasks removed by cascade with
+ * their project. The queues change when the transaction commits.
+ */
+@RequiredArgsConstructor
+public class TaskQueueListener {
+
+    private final TaskQueue taskQueue;
+
+    @PostPersist
+    @PostUpdate
+    void offer(Task task) {
+        taskQueue.offerAfterCommit(task);
+    }
+
+    @PostRemove
+    void remove(Task task) {
+        taskQueue.removeAfterCommit(task.getId());
+    }
+}
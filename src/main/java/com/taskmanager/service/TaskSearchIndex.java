@@ -0,0 +1,545 @@
+package com.taskmanager.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index over task titles and descriptions, behind {@code GET /api/tasks/search}.
+ * <p>
+ * Text is split into lower-cased runs of letters and digits. Every term keeps a posting list of task ids
+ * sorted by id, each with a weight: {@value #TITLE_WEIGHT} per occurrence in the title and 1 per occurrence
+ * in the description. A query matches the tasks that contain every query term, where query terms of
+ * {@value #MIN_PREFIX} or more characters also match longer terms that start with them. Tasks rank by the
+ * summed weights of the matched terms, exact matches counting double, then by id, newest first.
+ * <p>
+ * The index is built from the database before the web server starts, reading the tasks through a
+ * forward-only cursor. From then on {@link TaskSearchListener} and {@link TaskService} update it when a
+ * write commits, a newer version of a task replacing an older one whatever the order in which their commits
+ * are applied. Writes that bypass both, such as bulk SQL, are not seen until the next restart.
+ * <p>
+ * Ids and scores are packed into longs while ranking, which limits task ids to 32 bits; indexing a task with
+ * a larger id fails, so that the transaction writing it rolls back.
+ */
+@Slf4j
+@Component
+public class TaskSearchIndex implements SmartLifecycle {
+
+    static final int TITLE_WEIGHT = 3;
+    static final int MIN_PREFIX = 3;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERM_LENGTH = 40;
+    private static final int MAX_WEIGHT = 127;
+    private static final int MAX_QUERY_TERMS = 8;
+    /**
+     * Prefixes matching more terms than this only match the first ones in term order.
+     */
+    private static final int MAX_EXPANSIONS = 64;
+    private static final int FETCH_SIZE = 1000;
+    private static final long MAX_ID = 0xFFFF_FFFFL;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+    /**
+     * The indexed version and terms of every task, to take it out of their postings when it changes.
+     */
+    private final ConcurrentHashMap<Long, Document> documents = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    public TaskSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds the task, or replaces what was indexed for it, unless a newer version of it is already indexed.
+     *
+     * @throws IllegalArgumentException if the id does not fit in 32 bits.
+     */
+    public void index(long id, long version, String title, String description) {
+        checkId(id);
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(title, term -> weights.merge(term, TITLE_WEIGHT, Integer::sum));
+        tokenize(description, term -> weights.merge(term, 1, Integer::sum));
+
+        documents.compute(id, (key, previous) -> {
+            if (previous != null && previous.version() > version) {
+                return previous;
+            }
+            if (previous != null) {
+                for (String term : previous.terms()) {
+                    if (!weights.containsKey(term)) {
+                        removePosting(term, id);
+                    }
+                }
+            }
+            String[] indexed = new String[weights.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+                indexed[i++] = addPosting(weight.getKey(), id, Math.min(weight.getValue(), MAX_WEIGHT));
+            }
+            return new Document(version, indexed);
+        });
+    }
+
+    public void remove(long id) {
+        documents.computeIfPresent(id, (key, indexed) -> {
+            for (String term : indexed.terms()) {
+                removePosting(term, id);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Indexes the task as it is at the given version once the current transaction commits, or right away
+     * outside a transaction.
+     *
+     * @throws IllegalArgumentException if the id does not fit in 32 bits, before anything is committed.
+     */
+    public void indexAfterCommit(Long id, long version, String title, String description) {
+        checkId(id);
+        afterCommit(id, new Write(version, title, description));
+    }
+
+    public void removeAfterCommit(Long id) {
+        afterCommit(id, null);
+    }
+
+    /**
+     * @return the ids of the matches ranked {@code offset} to {@code offset + limit}, and the number of matches.
+     */
+    public Hits search(String query, int offset, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>();
+        tokenize(query, queryTerms::add);
+        if (queryTerms.isEmpty()) {
+            return new Hits(List.of(), 0);
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (String term : queryTerms) {
+            Match match = match(term);
+            if (match.postings.isEmpty()) {
+                return new Hits(List.of(), 0);
+            }
+            matches.add(match);
+            if (matches.size() == MAX_QUERY_TERMS) {
+                break;
+            }
+        }
+        matches.sort((a, b) -> Long.compare(a.size(), b.size()));
+
+        long[] candidates = matches.get(0).scores();
+        int count = candidates.length;
+        for (int m = 1; m < matches.size() && count > 0; m++) {
+            Match match = matches.get(m);
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int score = match.score(candidates[i] >>> Integer.SIZE);
+                if (score > 0) {
+                    candidates[kept++] = candidates[i] + score;
+                }
+            }
+            count = kept;
+        }
+        return new Hits(top(candidates, count, offset, limit), count);
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Reads every task through a forward-only cursor. Apart from the index itself, memory stays bounded by
+     * the fetch size.
+     */
+    @Override
+    public void start() {
+        long start = System.nanoTime();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            // PostgreSQL only honours the fetch size inside a transaction.
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, version, title, description FROM tasks",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(FETCH_SIZE);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        index(rows.getLong(1), rows.getLong(2), rows.getString(3), rows.getString(4));
+                    }
+                }
+            } finally {
+                connection.commit();
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+        running = true;
+        log.info("Indexed {} tasks and {} terms for search in {} ms",
+                documents.size(), terms.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Builds the index before the web server starts taking requests.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    static void tokenize(String text, Consumer<String> consumer) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i - start >= MIN_TERM_LENGTH) {
+                consumer.accept(text.substring(start, Math.min(i, start + MAX_TERM_LENGTH)).toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private Match match(String term) {
+        List<Postings> postings = new ArrayList<>();
+        Postings exact = terms.get(term);
+        if (exact != null) {
+            postings.add(exact);
+        }
+        if (term.length() >= MIN_PREFIX) {
+            for (Postings longer : terms.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                if (postings.size() == MAX_EXPANSIONS) {
+                    break;
+                }
+                postings.add(longer);
+            }
+        }
+        return new Match(postings, exact != null);
+    }
+
+    /**
+     * Selects the ranked page with a min-heap of the best {@code offset + limit} candidates, each encoded as
+     * {@code score << 32 | id} so that keys order like the ranking.
+     */
+    private static List<Long> top(long[] candidates, int count, int offset, int limit) {
+        int k = (int) Math.min(count, (long) offset + limit);
+        if (k <= offset) {
+            return List.of();
+        }
+        long[] heap = new long[k];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            long key = candidates[i] << Integer.SIZE | candidates[i] >>> Integer.SIZE;
+            if (size < k) {
+                heap[size] = key;
+                siftUp(heap, size++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, size);
+            }
+        }
+        Arrays.sort(heap, 0, size);
+        List<Long> ids = new ArrayList<>(size - offset);
+        for (int i = size - 1 - offset; i >= 0; i--) {
+            ids.add(heap[i] & 0xFFFF_FFFFL);
+        }
+        return ids;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent] <= heap[i]) {
+                return;
+            }
+            swap(heap, parent, i);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            if (left < size && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (left + 1 < size && heap[left + 1] < heap[smallest]) {
+                smallest = left + 1;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(heap, smallest, i);
+            i = smallest;
+        }
+    }
+
+    private static void swap(long[] heap, int a, int b) {
+        long tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    /**
+     * @return the term as stored in the dictionary, so that documents share its instance.
+     */
+    private String addPosting(String term, long id, int weight) {
+        while (true) {
+            Postings postings = terms.computeIfAbsent(term, Postings::new);
+            if (postings.put(id, weight)) {
+                return postings.term;
+            }
+        }
+    }
+
+    private void removePosting(String term, long id) {
+        Postings postings = terms.get(term);
+        if (postings != null && postings.remove(id)) {
+            terms.remove(term, postings);
+        }
+    }
+
+    private static void checkId(long id) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException(
+                    "Task id " + id + " does not fit in the 32 bits the search index ranks by");
+        }
+    }
+
+    private void afterCommit(Long id, Write write) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(id, write);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, Write> pending = (Map<Long, Write>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<Long, Write> writes = new LinkedHashMap<>();
+            pending = writes;
+            TransactionSynchronizationManager.bindResource(this, writes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    writes.forEach(TaskSearchIndex.this::apply);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TaskSearchIndex.this);
+                }
+            });
+        }
+        pending.put(id, write);
+    }
+
+    private void apply(Long id, Write write) {
+        if (write == null) {
+            remove(id);
+        } else {
+            index(id, write.version(), write.title(), write.description());
+        }
+    }
+
+    public record Hits(List<Long> ids, int total) {
+    }
+
+    private record Document(long version, String[] terms) {
+    }
+
+    /**
+     * A task to index once the transaction commits; {@code null} stands for a removal.
+     */
+    private record Write(long version, String title, String description) {
+    }
+
+    /**
+     * The postings a query term matches: the exact term, if indexed, first.
+     */
+    private record Match(List<Postings> postings, boolean exact) {
+
+        long size() {
+            long size = 0;
+            for (Postings posting : postings) {
+                size += posting.size();
+            }
+            return size;
+        }
+
+        int score(long id) {
+            int best = 0;
+            for (int i = 0; i < postings.size(); i++) {
+                int weight = postings.get(i).weight(id);
+                best = Math.max(best, i == 0 && exact ? 2 * weight : weight);
+            }
+            return best;
+        }
+
+        /**
+         * @return every matching id with its score, encoded as {@code id << 32 | score} and sorted by id.
+         */
+        long[] scores() {
+            List<long[]> parts = new ArrayList<>(postings.size());
+            int total = 0;
+            for (int i = 0; i < postings.size(); i++) {
+                long[] part = postings.get(i).encoded(i == 0 && exact ? 2 : 1);
+                parts.add(part);
+                total += part.length;
+            }
+            long[] all = new long[total];
+            int offset = 0;
+            for (long[] part : parts) {
+                System.arraycopy(part, 0, all, offset, part.length);
+                offset += part.length;
+            }
+            if (parts.size() == 1) {
+                return all;
+            }
+            Arrays.sort(all);
+            // Of the entries of one id, sorting put the best score last.
+            int kept = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (i + 1 == all.length || all[i + 1] >>> Integer.SIZE != all[i] >>> Integer.SIZE) {
+                    all[kept++] = all[i];
+                }
+            }
+            return Arrays.copyOf(all, kept);
+        }
+    }
+
+    /**
+     * The ids of the tasks containing one term, sorted, with their weights. Tasks are mostly added in id
+     * order, so inserts usually append.
+     */
+    static final class Postings {
+        final String term;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private long[] ids = new long[2];
+        private byte[] weights = new byte[2];
+        private int size;
+        /**
+         * Set once the list emptied and left the dictionary; writers must then look the term up again.
+         */
+        private boolean removed;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        boolean put(long id, int weight) {
+            lock.writeLock().lock();
+            try {
+                if (removed) {
+                    return false;
+                }
+                int i = size > 0 && ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+                if (i >= 0) {
+                    weights[i] = (byte) weight;
+                    return true;
+                }
+                i = -i - 1;
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+                    weights = Arrays.copyOf(weights, ids.length);
+                }
+                System.arraycopy(ids, i, ids, i + 1, size - i);
+                System.arraycopy(weights, i, weights, i + 1, size - i);
+                ids[i] = id;
+                weights[i] = (byte) weight;
+                size++;
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * @return whether the list is now empty and must leave the dictionary.
+         */
+        boolean remove(long id) {
+            lock.writeLock().lock();
+            try {
+                int i = Arrays.binarySearch(ids, 0, size, id);
+                if (i >= 0) {
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    System.arraycopy(weights, i + 1, weights, i, size - i - 1);
+                    size--;
+                }
+                removed = size == 0;
+                return removed;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return size;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int weight(long id) {
+            lock.readLock().lock();
+            try {
+                int i = Arrays.binarySearch(ids, 0, size, id);
+                return i < 0 ? 0 : weights[i];
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        long[] encoded(int factor) {
+            lock.readLock().lock();
+            try {
+                long[] encoded = new long[size];
+                for (int i = 0; i < size; i++) {
+                    encoded[i] = ids[i] << Integer.SIZE | (long) factor * weights[i];
+                }
+                return encoded;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
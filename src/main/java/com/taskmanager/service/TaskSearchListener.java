@@ -0,0 +1,28 @@
+package com.taskmanager.service;
+
+import com.taskmanager.domain.Task;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Keeps {@link TaskSearchIndex} current with the tasks Hibernate writes, including tasks removed by cascade
+ * with their project. The index changes when the transaction commits.
+ */
+@RequiredArgsConstructor
+public class TaskSearchListener {
+
+    private final TaskSearchIndex searchIndex;
+
+    @PostPersist
+    @PostUpdate
+    void index(Task task) {
+        searchIndex.indexAfterCommit(task.getId(), task.getVersion(), task.getTitle(), task.getDescription());
+    }
+
+    @PostRemove
+    void remove(Task task) {
+        searchIndex.removeAfterCommit(task.getId());
+    }
+}
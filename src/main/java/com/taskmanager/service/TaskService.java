@@ -1,31 +1,353 @@
 package com.taskmanager.service;
 
 
+import com.taskmanager.domain.Project;
 import com.taskmanager.domain.Task;
+import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.Status;
+import com.taskmanager.dto.TaskCursor;
+import com.taskmanager.dto.TaskFilter;
+import com.taskmanager.dto.TaskPatch;
+import com.taskmanager.repository.ProjectRepository;
 import com.taskmanager.repository.TaskRepository;
+import com.taskmanager.repository.TaskSpecifications;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class TaskService {
     private final TaskRepository taskRepository;
+    private final ProjectRepository projectRepository;
+    private final UserService userService;
+    private final EntityManager entityManager;
+    private final TaskChangeLog changeLog;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskSearchIndex searchIndex;
+    private final TaskExpiry taskExpiry;
+    private final ProjectTaskCounts taskCounts;
+    private final TaskQueue taskQueue;
 
+    /**
+     * Saves a task and, if it is new, counts it in its project's stats in the same transaction.
+     */
+    @Transactional
     public Task saveTask(Task task) {
-        return taskRepository.save(task);
+        String action = task.getId() == null ? ChangeEvent.CREATED : ChangeEvent.UPDATED;
+        Task saved = taskRepository.save(task);
+        if (ChangeEvent.CREATED.equals(action)) {
+            taskCounts.apply(new ProjectTaskCounts.Deltas()
+                    .add(saved.getProject().getId(), saved.getStatus(), saved.getPriority(), 1));
+        }
+        taskExpiry.scheduleAfterCommit(List.of(saved));
+        eventPublisher.publishEvent(ChangeEvent.ofTask(action, saved));
+        return saved;
     }
 
-    public List<Task> getTasks() {
-        return taskRepository.findAll();
+    /**
+     * Creates a batch of tasks in one transaction. The projects, and the creator with all assignees, are each
+     * looked up with one query; assignees that do not exist yet are created along with the tasks, so nothing is
+     * left behind if the batch fails. The tasks are then inserted by {@link #saveTasks}.
+     *
+     * @param tasks tasks whose project is identified by its id and whose assignee by its email.
+     * @throws IllegalArgumentException if a task has no project or its project does not exist; nothing is
+     * created then.
+     */
+    @Transactional
+    public List<Task> createTasks(String creatorEmail, List<Task> tasks) {
+        Set<Long> projectIds = new HashSet<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            Project project = tasks.get(i).getProject();
+            if (project == null || project.getId() == null) {
+                throw new IllegalArgumentException("Task " + i + ": project.id must not be null");
+            }
+            projectIds.add(project.getId());
+        }
+        Set<Long> existing = new HashSet<>(projectRepository.findExistingIds(projectIds));
+        for (int i = 0; i < tasks.size(); i++) {
+            if (!existing.contains(tasks.get(i).getProject().getId())) {
+                throw new IllegalArgumentException("Task " + i + ": project " + tasks.get(i).getProject().getId() +
+                        " not found");
+            }
+        }
+
+        Set<String> emails = new HashSet<>();
+        emails.add(creatorEmail);
+        tasks.stream()
+                .filter(task -> task.getAssignee() != null && task.getAssignee().getEmail() != null)
+                .forEach(task -> emails.add(task.getAssignee().getEmail()));
+        Map<String, User> users = userService.findAllByEmail(emails);
+
+        User creator = users.get(creatorEmail);
+        for (Task task : tasks) {
+            task.setCreator(creator);
+            if (task.getAssignee() != null) {
+                User assignee = users.get(task.getAssignee().getEmail());
+                if (assignee == null) {
+                    assignee = userService.saveUser(task.getAssignee());
+                    users.put(assignee.getEmail(), assignee);
+                }
+                task.setAssignee(assignee);
+            }
+        }
+        return saveTasks(tasks);
+    }
+
+    /**
+     * Inserts all tasks in one transaction. With pooled sequence ids and {@code hibernate.jdbc.batch_size}
+     * the inserts go out as JDBC batches. A task's project only needs its id: it is replaced by a
+     * reference so that no project is loaded.
+     */
+    @Transactional
+    public List<Task> saveTasks(List<Task> tasks) {
+        ProjectTaskCounts.Deltas deltas = new ProjectTaskCounts.Deltas();
+        tasks.forEach(task -> {
+            if (task.getProject() != null && task.getProject().getId() != null) {
+                task.setProject(entityManager.getReference(Project.class, task.getProject().getId()));
+            }
+            entityManager.persist(task);
+            deltas.add(task.getProject().getId(), task.getStatus(), task.getPriority(), 1);
+            eventPublisher.publishEvent(ChangeEvent.ofTask(ChangeEvent.CREATED, task));
+        });
+        taskCounts.apply(deltas);
+        taskExpiry.scheduleAfterCommit(tasks);
+        return tasks;
+    }
+
+    /**
+     * Returns up to {@code limit} tasks matching the filter, in the order of
+     * {@link TaskSpecifications#orderOf}, starting after the cursor.
+     */
+    public List<Task> getTasks(TaskFilter filter, TaskCursor after, int limit) {
+        return taskRepository.findBy(
+                TaskSpecifications.matching(filter, after),
+                query -> query.sortBy(TaskSpecifications.orderOf(filter)).limit(limit).all()
+        );
+    }
+
+    /**
+     * Hands every task to {@code consumer} in id order, reading them through a forward-only cursor.
+     * Each task is detached once consumed, so the persistence context never grows.
+     */
+    @Transactional(readOnly = true)
+    public void streamTasks(Consumer<Task> consumer) {
+        try (Stream<Task> tasks = taskRepository.streamAll()) {
+            tasks.forEach(task -> {
+                consumer.accept(task);
+                entityManager.detach(task);
+            });
+        }
+    }
+
+    /**
+     * Applies the non-null fields of {@code patch} with one UPDATE that writes only those columns, and
+     * {@code updated_at}, {@code version} and {@code change_seq}. The UPDATE only matches if {@code creatorId} created the task
+     * and, unless {@code expectedVersion} is {@code null}, the task is still at that version. A patch of the
+     * status or priority first locks the task to read the counter it moves out of, see {@link ProjectTaskCounts}.
+     *
+     * @param assigneeId the new assignee, {@code null} to keep the current one.
+     * @return the updated task, read back in the same transaction; {@code null} if no row matched.
+     */
+    @Transactional
+    public Task patchTask(Long id, Long creatorId, Long expectedVersion, TaskPatch patch, Long assigneeId) {
+        ProjectTaskCounts.Counter counted = patch.status() != null || patch.priority() != null
+                ? taskCounts.lockCounterOf(id) : null;
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Task> update = cb.createCriteriaUpdate(Task.class);
+        Root<Task> task = update.from(Task.class);
+        setIfNotNull(update, task.get("title"), patch.title());
+        setIfNotNull(update, task.get("description"), patch.description());
+        setIfNotNull(update, task.get("status"), patch.status());
+        setIfNotNull(update, task.get("priority"), patch.priority());
+        setIfNotNull(update, task.get("dueDate"), patch.dueDate());
+        if (assigneeId != null) {
+            update.set(task.get("assignee"), entityManager.getReference(User.class, assigneeId));
+        }
+        update.set(task.get("updatedAt"), LocalDateTime.now());
+        update.set(task.get("changeSeq"), changeLog.next());
+        Path<Long> version = task.get("version");
+        update.set(version, cb.sum(version, 1L));
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(task.get("id"), id));
+        predicates.add(cb.equal(task.get("creator").get("id"), creatorId));
+        if (expectedVersion != null) {
+            predicates.add(cb.equal(version, expectedVersion));
+        }
+        update.where(predicates.toArray(Predicate[]::new));
+
+        if (entityManager.createQuery(update).executeUpdate() == 0) {
+            return null;
+        }
+        Task patched = entityManager.find(Task.class, id);
+        if (patch.title() != null || patch.description() != null) {
+            searchIndex.indexAfterCommit(id, patched.getVersion(), patched.getTitle(), patched.getDescription());
+        }
+        if (counted != null) {
+            taskCounts.apply(new ProjectTaskCounts.Deltas().move(counted, patched.getStatus(), patched.getPriority()));
+        }
+        if (patch.dueDate() != null || patch.status() != null) {
+            taskExpiry.scheduleAfterCommit(List.of(patched));
+        }
+        taskQueue.offerAfterCommit(patched);
+        eventPublisher.publishEvent(ChangeEvent.ofTask(ChangeEvent.UPDATED, patched));
+        return patched;
+    }
+
+    static <Y> void setIfNotNull(CriteriaUpdate<?> update, Path<Y> path, Y value) {
+        if (value != null) {
+            update.set(path, value);
+        }
     }
 
     public Task getTask(Long id) {
         return taskRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Deletes a task; {@link TaskChangeListener} leaves its tombstone in the same transaction. The versioned
+     * DELETE is flushed before the task is uncounted, so the task it counts out is the one deleted.
+     */
+    @Transactional
     public void findById(Long id) {
-        taskRepository.deleteById(id);
+        taskRepository.findById(id).ifPresent(task -> {
+            taskRepository.delete(task);
+            entityManager.flush();
+            taskCounts.apply(new ProjectTaskCounts.Deltas()
+                    .add(task.getProject().getId(), task.getStatus(), task.getPriority(), -1));
+            eventPublisher.publishEvent(ChangeEvent.ofTask(ChangeEvent.DELETED, task));
+        });
+    }
+
+    /**
+     * Returns up to {@code limit} changes stamped after {@code since}, in stamp order: tasks that were
+     * created or updated, and ids of deleted tasks. Both are read through their {@code change_seq} index.
+     * Changes of transactions that are still open are held back, see {@link TaskChangeLog#watermark()}.
+     *
+     * @return the changes and the stamp to pass as {@code since} for the next changes, or {@code null} if
+     * tombstones after a non-negative {@code since} have been pruned, see {@link TaskChangeLog#prunedThrough()}.
+     */
+    @Transactional(readOnly = true)
+    public TaskChanges getChanges(long since, int limit) {
+        long until = changeLog.watermark();
+        List<Task> tasks = taskRepository.findChanged(since, until, Limit.of(limit + 1));
+        List<TaskChangeLog.Tombstone> tombstones = changeLog.findTombstones(since, until, limit + 1);
+        if (since >= 0 && since < changeLog.prunedThrough()) {
+            return null;
+        }
+
+        List<Task> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        long last = since;
+        int t = 0;
+        int d = 0;
+        while (changed.size() + deleted.size() < limit && (t < tasks.size() || d < tombstones.size())) {
+            if (d == tombstones.size()
+                    || t < tasks.size() && tasks.get(t).getChangeSeq() < tombstones.get(d).changeSeq()) {
+                last = tasks.get(t).getChangeSeq();
+                changed.add(tasks.get(t++));
+            } else {
+                last = tombstones.get(d).changeSeq();
+                deleted.add(tombstones.get(d++).taskId());
+            }
+        }
+        boolean hasMore = t < tasks.size() || d < tombstones.size();
+        return new TaskChanges(changed, deleted, hasMore ? last : until, hasMore);
+    }
+
+    /**
+     * Returns the first {@code limit} tasks of the user's queue and of the unassigned pool, see
+     * {@link TaskQueue}, as {@link #claimNextTask} would claim them.
+     */
+    public List<Task> getNextTasks(Long userId, int limit) {
+        List<TaskQueue.Entry> next = taskQueue.peek(userId, limit);
+        Map<Long, Task> tasks = new HashMap<>();
+        taskRepository.findAllById(next.stream().map(TaskQueue.Entry::id).toList())
+                .forEach(task -> tasks.put(task.getId(), task));
+        return next.stream()
+                .map(entry -> tasks.get(entry.id()))
+                .filter(task -> task != null && task.getStatus() == Status.TODO)
+                .toList();
+    }
+
+    /**
+     * Claims the first task of the user's queue and of the unassigned pool: assigns it to the user and moves
+     * it to {@code IN_PROGRESS} with one UPDATE guarded by the version it was queued at. Concurrent claimers
+     * take distinct tasks from the queues, and the guard settles a race with any other write. A task that
+     * changed since it was queued is requeued as it is now, and the next one is tried.
+     *
+     * @return the claimed task; {@code null} if there is none to claim.
+     */
+    @Transactional
+    public Task claimNextTask(Long userId) {
+        for (TaskQueue.Entry entry = taskQueue.poll(userId); entry != null; entry = taskQueue.poll(userId)) {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaUpdate<Task> update = cb.createCriteriaUpdate(Task.class);
+            Root<Task> task = update.from(Task.class);
+            update.set(task.get("status"), Status.IN_PROGRESS);
+            update.set(task.get("assignee"), entityManager.getReference(User.class, userId));
+            update.set(task.get("updatedAt"), LocalDateTime.now());
+            update.set(task.get("changeSeq"), changeLog.next());
+            Path<Long> version = task.get("version");
+            update.set(version, cb.sum(version, 1L));
+            update.where(cb.equal(task.get("id"), entry.id()), cb.equal(version, entry.version()),
+                    cb.equal(task.get("status"), Status.TODO));
+
+            if (entityManager.createQuery(update).executeUpdate() == 0) {
+                Task current = entityManager.find(Task.class, entry.id());
+                taskQueue.requeue(entry, current);
+                if (current != null) {
+                    // The task may be polled again; it must then be read anew.
+                    entityManager.detach(current);
+                }
+                continue;
+            }
+            taskQueue.claimed(entry);
+            taskCounts.apply(new ProjectTaskCounts.Deltas()
+                    .add(entry.projectId(), Status.TODO, entry.priority(), -1)
+                    .add(entry.projectId(), Status.IN_PROGRESS, entry.priority(), 1));
+            Task claimed = entityManager.find(Task.class, entry.id());
+            eventPublisher.publishEvent(ChangeEvent.ofTask(ChangeEvent.UPDATED, claimed));
+            return claimed;
+        }
+        return null;
+    }
+
+    /**
+     * Ranks the tasks whose title or description contains every term of {@code query}, see
+     * {@link TaskSearchIndex}, and loads the requested page of them with one query.
+     */
+    public TaskSearchResult searchTasks(String query, int offset, int limit) {
+        TaskSearchIndex.Hits hits = searchIndex.search(query, offset, limit);
+        Map<Long, Task> tasks = new HashMap<>();
+        taskRepository.findAllById(hits.ids()).forEach(task -> tasks.put(task.getId(), task));
+        List<Task> ranked = hits.ids().stream().map(tasks::get).filter(Objects::nonNull).toList();
+        return new TaskSearchResult(ranked, hits.total());
+    }
+
+    public record TaskSearchResult(List<Task> tasks, int total) {
+    }
+
+    public record TaskChanges(List<Task> changed, List<Long> deleted, long until, boolean hasMore) {
     }
 }
@@ -0,0 +1,175 @@
+package com.taskmanager.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel of task deadlines, in ticks. Each of the {@value #LEVELS} levels has
+ * {@value #SLOTS} slots, and a slot of level {@code n} spans {@code 64^n} ticks, so the wheel reaches
+ * {@code 64^4} ticks ahead: about 194 days at one tick per second. Scheduling and cancelling are O(1).
+ * When a lower level wraps around, the next slot of the level above is spread over the levels below.
+ * <p>
+ * Every timer carries the version of the task it was scheduled for, so that callers can tell a stale
+ * reschedule from a current one, see {@link #version}.
+ * <p>
+ * Not thread-safe.
+ */
+final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    /**
+     * Bucket of timers whose tick is not after {@link #now}.
+     */
+    private static final int OVERDUE = LEVELS * SLOTS;
+
+    private final Timer[] buckets = new Timer[LEVELS * SLOTS + 1];
+    private final Map<Long, Timer> timers = new HashMap<>();
+    private long now;
+
+    TimingWheel(long now) {
+        this.now = now;
+    }
+
+    /**
+     * Schedules the task to fire at {@code tick}, replacing its previous timer.
+     *
+     * @return {@code false} if {@code tick} is beyond the reach of the wheel; the task is then not scheduled.
+     */
+    boolean schedule(long id, long version, long tick) {
+        cancel(id);
+        Timer timer = new Timer(id, version, tick);
+        if (!place(timer)) {
+            return false;
+        }
+        timers.put(id, timer);
+        return true;
+    }
+
+    void cancel(long id) {
+        Timer timer = timers.remove(id);
+        if (timer != null) {
+            unlink(timer);
+        }
+    }
+
+    /**
+     * Moves the wheel forward to {@code tick}.
+     *
+     * @return the ids of the tasks whose timers fired, in tick order.
+     */
+    List<Long> advance(long tick) {
+        List<Long> fired = new ArrayList<>();
+        fire(OVERDUE, fired);
+        while (now < tick) {
+            now++;
+            int level = 1;
+            while (level < LEVELS && (now & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                level++;
+            }
+            for (int l = level - 1; l >= 1; l--) {
+                cascade(l * SLOTS + (int) ((now >>> (SLOT_BITS * l)) & MASK));
+            }
+            // Cascading puts the timers of this very tick among the overdue ones.
+            fire(OVERDUE, fired);
+            fire((int) (now & MASK), fired);
+        }
+        return fired;
+    }
+
+    /**
+     * @return the task version the pending timer of the task was scheduled for; -1 if it has none.
+     */
+    long version(long id) {
+        Timer timer = timers.get(id);
+        return timer == null ? -1 : timer.version;
+    }
+
+    long now() {
+        return now;
+    }
+
+    int size() {
+        return timers.size();
+    }
+
+    /**
+     * Puts the timer on the lowest level at which its tick and {@link #now} share all higher slots.
+     */
+    private boolean place(Timer timer) {
+        int bucket;
+        if (timer.tick <= now) {
+            bucket = OVERDUE;
+        } else {
+            int level = 0;
+            while (level < LEVELS && timer.tick >>> (SLOT_BITS * (level + 1)) != now >>> (SLOT_BITS * (level + 1))) {
+                level++;
+            }
+            if (level == LEVELS) {
+                return false;
+            }
+            bucket = level * SLOTS + (int) ((timer.tick >>> (SLOT_BITS * level)) & MASK);
+        }
+        timer.bucket = bucket;
+        timer.next = buckets[bucket];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        buckets[bucket] = timer;
+        return true;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.prev == null) {
+            buckets[timer.bucket] = timer.next;
+        } else {
+            timer.prev.next = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+    }
+
+    private void cascade(int bucket) {
+        Timer timer = buckets[bucket];
+        buckets[bucket] = null;
+        while (timer != null) {
+            Timer next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            place(timer);
+            timer = next;
+        }
+    }
+
+    private void fire(int bucket, List<Long> fired) {
+        Timer timer = buckets[bucket];
+        buckets[bucket] = null;
+        while (timer != null) {
+            timers.remove(timer.id);
+            fired.add(timer.id);
+            timer = timer.next;
+        }
+    }
+
+    private static final class Timer {
+        final long id;
+        final long version;
+        final long tick;
+        int bucket;
+        Timer prev;
+        Timer next;
+
+        Timer(long id, long version, long tick) {
+            this.id = id;
+            this.version = version;
+            this.tick = tick;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.taskmanager.service;
+
+import com.taskmanager.domain.JwpToken;
+import com.taskmanager.domain.User;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind journal for issued tokens. Tokens are queued in a bounded buffer and a single writer
+ * thread persists them in batches, taking the inserts off the login path. Until a token is written it
+ * can be found with {@link #findPending(String)}.
+ *
+ * <p>When the buffer stays full for longer than the offer timeout the caller writes the token itself,
+ * which throttles producers to the speed of the database. On shutdown the buffer is drained before the
+ * data source goes away.</p>
+ *
+ * <p>Issued tokens are already in the hands of clients, so a failed write is never given up on while the
+ * journal runs: a batch that violates a constraint is split until the offending token is isolated, and any
+ * other failure is retried with exponential backoff, the tokens staying pending meanwhile. Failures are
+ * counted in {@code taskmanager.tokens.journal.write-failures}.</p>
+ */
+@Slf4j
+@Component
+public class TokenJournal implements SmartLifecycle {
+
+    /**
+     * Attempts left to a failing batch once the journal is stopping.
+     */
+    private static final int SHUTDOWN_ATTEMPTS = 3;
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final BlockingQueue<JwpToken> queue;
+    private final Map<String, JwpToken> pending = new ConcurrentHashMap<>();
+    private final AtomicLong writeFailureCount = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public TokenJournal(
+            EntityManager entityManager,
+            TransactionTemplate transactionTemplate,
+            @Value("${taskmanager.tokens.write-behind.enabled:false}") boolean enabled,
+            @Value("${taskmanager.tokens.write-behind.capacity:10000}") int capacity,
+            @Value("${taskmanager.tokens.write-behind.batch-size:200}") int batchSize,
+            @Value("${taskmanager.tokens.write-behind.offer-timeout-ms:100}") long offerTimeoutMillis) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the token for writing, or writes it synchronously if the journal is not running or the
+     * buffer does not free up within the offer timeout.
+     */
+    public void submit(JwpToken token) {
+        if (!running) {
+            write(List.of(token));
+            return;
+        }
+        pending.put(token.getToken(), token);
+        try {
+            if (queue.offer(token, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            write(List.of(token));
+        } catch (RuntimeException e) {
+            // Never written and never queued: the token must not keep validating.
+            pending.remove(token.getToken());
+            throw e;
+        }
+    }
+
+    public JwpToken findPending(String token) {
+        return pending.get(token);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return how many batch writes have failed since startup, retried ones included.
+     */
+    public long getWriteFailureCount() {
+        return writeFailureCount.get();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "token-journal-writer");
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+        List<JwpToken> late = new ArrayList<>();
+        queue.drainTo(late);
+        if (!late.isEmpty()) {
+            writeWithRetry(late);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+
+    /**
+     * Stops after the web server, so that every token issued by an in-flight login is still written.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void drain() {
+        List<JwpToken> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                JwpToken first = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            writeWithRetry(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the batch, retrying until it is written or, for the tokens that violate a constraint, discarded.
+     */
+    void writeWithRetry(List<JwpToken> batch) {
+        long backoffMillis = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                writeFailureCount.incrementAndGet();
+                batch.forEach(token -> token.setId(null));
+                if (isConstraintViolation(e)) {
+                    writeIsolating(batch, e);
+                    return;
+                }
+                if (!running && attempt >= SHUTDOWN_ATTEMPTS) {
+                    log.error("Could not write {} tokens before shutdown; they will no longer validate", batch.size(), e);
+                    return;
+                }
+                log.warn("Writing {} tokens failed (attempt {}), retrying in {} ms", batch.size(), attempt, backoffMillis, e);
+                if (!sleep(backoffMillis)) {
+                    // Interrupted by stop(): keep retrying, with the shutdown budget.
+                    continue;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Writes the halves of a batch that violated a constraint separately, so that one bad token does not keep
+     * the others from being written. A single token that violates a constraint cannot be valid, for instance
+     * because its user was deleted, and is discarded.
+     */
+    private void writeIsolating(List<JwpToken> batch, RuntimeException failure) {
+        if (batch.size() == 1) {
+            JwpToken token = batch.get(0);
+            log.error("Discarding a token of user {} that cannot be written", token.getUser().getId(), failure);
+            pending.remove(token.getToken());
+            return;
+        }
+        int half = batch.size() / 2;
+        writeWithRetry(new ArrayList<>(batch.subList(0, half)));
+        writeWithRetry(new ArrayList<>(batch.subList(half, batch.size())));
+    }
+
+    /**
+     * @return {@code false} if interrupted.
+     */
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private static boolean isConstraintViolation(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException || cause instanceof ConstraintViolationException
+                    || cause instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(List<JwpToken> tokens) {
+        transactionTemplate.executeWithoutResult(status -> tokens.forEach(token -> {
+            token.setUser(entityManager.getReference(User.class, token.getUser().getId()));
+            entityManager.persist(token);
+        }));
+        tokens.forEach(token -> pending.remove(token.getToken()));
+    }
+}
@@ -0,0 +1,161 @@
+package com.taskmanager.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically deletes expired and revoked rows from {@code tokens}. Rows are removed in bounded chunks
+ * by a single {@code DELETE} per chunk over a range of the {@code expires_at} or {@code (is_revoked, id)}
+ * index, without loading entities, and chunks are paced so that the reaper never deletes faster than the
+ * configured rate.
+ * <p>
+ * The reaper runs on a thread of its own: its pauses would otherwise hold up the other scheduled jobs.
+ */
+@Slf4j
+@Component
+public class TokenReaper implements SmartLifecycle {
+
+    private static final String DELETE_EXPIRED_CHUNK =
+            "DELETE FROM tokens WHERE id IN (SELECT id FROM tokens WHERE expires_at < ? ORDER BY expires_at LIMIT ?)";
+    private static final String DELETE_REVOKED_CHUNK =
+            "DELETE FROM tokens WHERE id IN (SELECT id FROM tokens WHERE is_revoked = TRUE ORDER BY id LIMIT ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final int chunkSize;
+    private final long pauseMillis;
+
+    private final AtomicLong rowsReaped = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    private volatile ScheduledExecutorService executor;
+
+    public TokenReaper(
+            JdbcTemplate jdbcTemplate,
+            @Value("${taskmanager.tokens.reaper.enabled:true}") boolean enabled,
+            @Value("${taskmanager.tokens.reaper.interval-ms:60000}") long intervalMillis,
+            @Value("${taskmanager.tokens.reaper.chunk-size:1000}") int chunkSize,
+            @Value("${taskmanager.tokens.reaper.max-rows-per-second:5000}") int maxRowsPerSecond) {
+        if (intervalMillis <= 0 || chunkSize <= 0 || maxRowsPerSecond <= 0) {
+            throw new IllegalArgumentException("taskmanager.tokens.reaper.interval-ms, chunk-size and " +
+                    "max-rows-per-second must be positive");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.intervalMillis = intervalMillis;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = 1000L * chunkSize / maxRowsPerSecond;
+    }
+
+    /**
+     * Deletes every token that has expired or been revoked.
+     */
+    public void reap() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        long reaped = reapInChunks(DELETE_EXPIRED_CHUNK, now, chunkSize)
+                + reapInChunks(DELETE_REVOKED_CHUNK, chunkSize);
+        updateLag();
+        if (reaped > 0) {
+            log.info("Reaped {} expired or revoked tokens", reaped);
+        }
+    }
+
+    /**
+     * @return total rows deleted since startup.
+     */
+    public long getRowsReaped() {
+        return rowsReaped.get();
+    }
+
+    /**
+     * @return how far behind the reaper is: the age of the oldest expired token that is still stored, as of
+     * the end of the last run.
+     */
+    public long getLagMillis() {
+        return lagMillis.get();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "token-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::run, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Interrupts a run that is pausing between chunks; the rest of the work is left to the next startup.
+     */
+    @Override
+    public void stop() {
+        ScheduledExecutorService scheduled = executor;
+        executor = null;
+        if (scheduled != null) {
+            scheduled.shutdownNow();
+            try {
+                scheduled.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executor != null;
+    }
+
+    private void run() {
+        try {
+            reap();
+        } catch (RuntimeException e) {
+            // A failed run must not cancel the schedule; the next one retries.
+            log.warn("Reaping tokens failed", e);
+        }
+    }
+
+    private long reapInChunks(String sql, Object... args) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, args);
+            total += deleted;
+            rowsReaped.addAndGet(deleted);
+            if (deleted == chunkSize && !pause()) {
+                break;
+            }
+        } while (deleted == chunkSize);
+        return total;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void updateLag() {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(expires_at) FROM tokens", Timestamp.class);
+        long lag = oldest == null ? 0 : System.currentTimeMillis() - oldest.getTime();
+        lagMillis.set(Math.max(0, lag));
+    }
+}
@@ -4,13 +4,21 @@ package com.taskmanager.service;
 import com.taskmanager.domain.User;
 import com.taskmanager.domain.enums.Role;
 import com.taskmanager.repository.UserRepository;
+import com.taskmanager.security.PrincipalCache;
+import com.taskmanager.security.SecurityVersionRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 @Service
 @RequiredArgsConstructor
 public class UserService {
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final SecurityVersionRegistry securityVersions;
 
     public User findByEmail(String email) {
         return userRepository.findByEmail(email).orElse(null);
@@ -22,7 +30,27 @@ public class UserService {
             user.getRoles().add(Role.USER);
         }
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        principalCache.invalidate(saved.getEmail());
+        securityVersions.record(saved.getId(), saved.getSecurityVersion(), saved.isActive());
+        return saved;
+    }
+
+    public void evictPrincipal(String email) {
+        principalCache.invalidate(email);
+    }
+
+    /**
+     * Looks up all the given emails with a single query.
+     *
+     * @return the found users keyed by email; emails without a user are absent.
+     */
+    public Map<String, User> findAllByEmail(Collection<String> emails) {
+        Map<String, User> users = new HashMap<>();
+        if (!emails.isEmpty()) {
+            userRepository.findAllByEmailIn(emails).forEach(user -> users.put(user.getEmail(), user));
+        }
+        return users;
     }
 
     public User findById(Long id) {
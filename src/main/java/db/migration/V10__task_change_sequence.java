@@ -0,0 +1,23 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * Creates the {@code task_change_seq} sequence that {@code change_seq} stamps are drawn from, starting above
+ * every stamp handed out so far by the in-process counter it replaces. Written in Java because the start
+ * value has to be a literal.
+ */
+public class V10__task_change_sequence extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        Long max = jdbcTemplate.queryForObject("SELECT GREATEST(" +
+                "(SELECT COALESCE(MAX(change_seq), 0) FROM tasks), " +
+                "(SELECT COALESCE(MAX(change_seq), 0) FROM task_tombstones))", Long.class);
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS task_change_seq START WITH " + (max + 1) + " INCREMENT BY 1");
+    }
+}
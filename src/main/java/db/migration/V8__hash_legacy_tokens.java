@@ -0,0 +1,75 @@
+package db.migration;
+
+import com.taskmanager.security.TokenDigest;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Moves databases from the legacy {@code tokens.token} column, which held the full JWT under a unique index,
+ * to {@code tokens.token_hash}: fills in the digest of every legacy row in chunks, then drops the old column
+ * with its index. Does nothing where the column never existed or is already gone.
+ * <p>
+ * Written in Java because the digest has to be computed by {@link TokenDigest}, as lookups compute it.
+ */
+@Slf4j
+public class V8__hash_legacy_tokens extends BaseJavaMigration {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        if (!hasLegacyTokenColumn(connection)) {
+            return;
+        }
+        long start = System.nanoTime();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        jdbcTemplate.execute("ALTER TABLE tokens ALTER COLUMN token DROP NOT NULL");
+
+        long migrated = 0;
+        List<LegacyToken> chunk;
+        do {
+            chunk = jdbcTemplate.query(
+                    "SELECT id, token FROM tokens WHERE token_hash IS NULL AND token IS NOT NULL LIMIT ?",
+                    (rs, rowNum) -> new LegacyToken(rs.getLong("id"), rs.getString("token")),
+                    CHUNK_SIZE
+            );
+            jdbcTemplate.batchUpdate("UPDATE tokens SET token_hash = ?, token = NULL WHERE id = ?", chunk, chunk.size(),
+                    (ps, token) -> {
+                        ps.setBytes(1, TokenDigest.sha256(token.token()));
+                        ps.setLong(2, token.id());
+                    });
+            migrated += chunk.size();
+        } while (chunk.size() == CHUNK_SIZE);
+
+        jdbcTemplate.execute("ALTER TABLE tokens DROP COLUMN token");
+        log.info("Migrated {} tokens to token_hash and dropped tokens.token in {} ms", migrated,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static boolean hasLegacyTokenColumn(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String table : new String[]{"tokens", "TOKENS"}) {
+            for (String column : new String[]{"token", "TOKEN"}) {
+                try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, table, column)) {
+                    if (columns.next()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private record LegacyToken(long id, String token) {
+    }
+}
@@ -0,0 +1,10 @@
+-- Tombstones older than taskmanager.changes.tombstone-retention-ms are pruned in change_seq order.
+-- pruned_through is the largest stamp pruned so far: a client whose cursor is older has missed deletions
+-- and has to sync again from scratch.
+CREATE TABLE IF NOT EXISTS task_tombstone_horizon (
+    id             INT    NOT NULL PRIMARY KEY CHECK (id = 1),
+    pruned_through BIGINT NOT NULL
+);
+
+INSERT INTO task_tombstone_horizon (id, pruned_through)
+SELECT 1, 0 WHERE NOT EXISTS (SELECT 1 FROM task_tombstone_horizon);
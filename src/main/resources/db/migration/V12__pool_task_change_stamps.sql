@@ -0,0 +1,3 @@
+-- TaskChangeLog hands out change_seq stamps in blocks of 50: a value drawn from the sequence reserves itself
+-- and the 49 stamps after it. Every value drawn so far, at an increment of 1, is below the next one drawn.
+ALTER SEQUENCE task_change_seq INCREMENT BY 50;
@@ -0,0 +1,76 @@
+-- Baseline schema. Every statement is idempotent so that the migration also applies cleanly to
+-- databases that were created by hibernate.ddl-auto=update before Flyway was introduced.
+
+CREATE SEQUENCE IF NOT EXISTS tasks_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS tokens_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS users (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    first_name       VARCHAR(30)  NOT NULL,
+    last_name        VARCHAR(60)  NOT NULL,
+    email            VARCHAR(255) NOT NULL,
+    password         VARCHAR(60)  NOT NULL,
+    is_active        BOOLEAN,
+    security_version BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS user_role (
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    roles   VARCHAR(255) CHECK (roles IN ('ADMIN', 'USER'))
+);
+
+CREATE TABLE IF NOT EXISTS projects (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title       VARCHAR(100) NOT NULL,
+    description VARCHAR(500),
+    owner_id    BIGINT       NOT NULL REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS tasks (
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    title       VARCHAR(100) NOT NULL,
+    description VARCHAR(500),
+    status      VARCHAR(255) NOT NULL CHECK (status IN ('TODO', 'IN_PROGRESS', 'DONE', 'EXPIRED')),
+    priority    VARCHAR(255) NOT NULL CHECK (priority IN ('LOWEST', 'LOW', 'MEDIUM', 'HIGH', 'HIGHEST')),
+    creator_id  BIGINT       NOT NULL REFERENCES users (id),
+    assignee_id BIGINT REFERENCES users (id),
+    project_id  BIGINT       NOT NULL REFERENCES projects (id),
+    due_date    TIMESTAMP(6),
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS tokens (
+    id         BIGINT   NOT NULL PRIMARY KEY,
+    token_hash BYTEA,
+    token_type SMALLINT NOT NULL CHECK (token_type BETWEEN 0 AND 1),
+    is_revoked BOOLEAN,
+    is_expired BOOLEAN,
+    created_at TIMESTAMP(6),
+    expires_at TIMESTAMP(6),
+    user_id    BIGINT   NOT NULL REFERENCES users (id)
+);
+
+-- Columns added to the entities after the ddl-auto era.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS security_version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE tokens ADD COLUMN IF NOT EXISTS token_hash BYTEA;
+
+-- users.email is looked up on every login and, without the principal cache, on every request.
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_email ON users (email);
+CREATE INDEX IF NOT EXISTS idx_user_role_user ON user_role (user_id);
+
+CREATE INDEX IF NOT EXISTS idx_projects_owner ON projects (owner_id);
+
+-- Keyset pagination: every filter of GET /api/tasks is paired with the id it orders by.
+CREATE INDEX IF NOT EXISTS idx_tasks_status_id ON tasks (status, id);
+CREATE INDEX IF NOT EXISTS idx_tasks_priority_id ON tasks (priority, id);
+CREATE INDEX IF NOT EXISTS idx_tasks_assignee_id ON tasks (assignee_id, id);
+CREATE INDEX IF NOT EXISTS idx_tasks_creator_id ON tasks (creator_id, id);
+CREATE INDEX IF NOT EXISTS idx_tasks_project_id ON tasks (project_id, id);
+CREATE INDEX IF NOT EXISTS idx_tasks_due_date ON tasks (due_date, id);
+CREATE INDEX IF NOT EXISTS idx_tasks_project_status ON tasks (project_id, status);
+CREATE INDEX IF NOT EXISTS idx_tasks_assignee_due_date ON tasks (assignee_id, due_date);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_tokens_token_hash ON tokens (token_hash);
+CREATE INDEX IF NOT EXISTS idx_tokens_expires_at ON tokens (expires_at);
+CREATE INDEX IF NOT EXISTS idx_tokens_user_expires_at ON tokens (user_id, expires_at);
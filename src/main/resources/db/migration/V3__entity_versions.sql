@@ -0,0 +1,4 @@
+-- Optimistic-locking versions of tasks and projects. They also derive the ETags of conditional GETs, so
+-- every write to these tables, including bulk SQL, must increment them.
+ALTER TABLE tasks ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE projects ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,14 @@
+-- Change log behind GET /api/tasks/changes. Every task write stamps change_seq with the next value of an
+-- application-side sequence, and every delete leaves a tombstone stamped the same way, so clients can ask
+-- for what changed after the last stamp they saw. Writes to tasks outside Hibernate, including bulk SQL,
+-- must stamp change_seq too, or clients that already synced will not see them.
+ALTER TABLE tasks ADD COLUMN IF NOT EXISTS change_seq BIGINT DEFAULT 0 NOT NULL;
+UPDATE tasks SET change_seq = id WHERE change_seq = 0;
+CREATE INDEX IF NOT EXISTS idx_tasks_change_seq ON tasks (change_seq);
+
+CREATE TABLE IF NOT EXISTS task_tombstones (
+    task_id    BIGINT       NOT NULL PRIMARY KEY,
+    change_seq BIGINT       NOT NULL,
+    deleted_at TIMESTAMP(6) NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_task_tombstones_change_seq ON task_tombstones (change_seq);
@@ -0,0 +1,3 @@
+-- Lets the expiry engine find the pending deadlines in a time range, on startup and as its horizon
+-- advances, without reading done or expired tasks.
+CREATE INDEX IF NOT EXISTS idx_tasks_status_due_date ON tasks (status, due_date);
@@ -0,0 +1,18 @@
+-- Per-project task counts behind GET /api/projects/{id}/stats: one row for every status and priority of
+-- every project, created with the project, so that task writes only ever UPDATE a counter. Writes to
+-- tasks outside TaskService and TaskExpiry leave the counts to the periodic reconciliation.
+CREATE TABLE IF NOT EXISTS project_task_counts (
+    project_id BIGINT       NOT NULL REFERENCES projects (id) ON DELETE CASCADE,
+    status     VARCHAR(255) NOT NULL,
+    priority   VARCHAR(255) NOT NULL,
+    task_count BIGINT       DEFAULT 0 NOT NULL,
+    PRIMARY KEY (project_id, status, priority)
+);
+
+INSERT INTO project_task_counts (project_id, status, priority, task_count)
+SELECT p.id, s.status, r.priority,
+       (SELECT COUNT(*) FROM tasks t WHERE t.project_id = p.id AND t.status = s.status AND t.priority = r.priority)
+FROM projects p
+CROSS JOIN (VALUES ('TODO'), ('IN_PROGRESS'), ('DONE'), ('EXPIRED')) AS s (status)
+CROSS JOIN (VALUES ('LOWEST'), ('LOW'), ('MEDIUM'), ('HIGH'), ('HIGHEST')) AS r (priority)
+WHERE NOT EXISTS (SELECT 1 FROM project_task_counts c WHERE c.project_id = p.id);
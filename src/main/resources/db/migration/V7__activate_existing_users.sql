@@ -0,0 +1,5 @@
+-- Registration never set is_active and PATCH /api/users/{id} cleared it whenever the body omitted it, so
+-- the flag carried no meaning until authentication started rejecting inactive users. Start everyone active.
+UPDATE users SET is_active = TRUE WHERE is_active IS NULL OR is_active = FALSE;
+
+ALTER TABLE users ALTER COLUMN is_active SET DEFAULT TRUE;
@@ -0,0 +1,38 @@
+package com.taskmanager;
+
+import com.taskmanager.domain.Project;
+import com.taskmanager.domain.User;
+import com.taskmanager.service.ProjectService;
+import com.taskmanager.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestComponent;
+
+/**
+ * Creates the users and projects that tests work with, through the same services as the application, so that
+ * each gets what those services set up alongside it, e.g. a project's task counts.
+ */
+@TestComponent
+public class TestData {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    public User createUser(String email) {
+        User user = new User();
+        user.setFirstName("Test");
+        user.setLastName("User");
+        user.setEmail(email);
+        user.setPassword("secret");
+        return userService.saveUser(user);
+    }
+
+    public Project createProject(User owner, String title) {
+        Project project = new Project();
+        project.setTitle(title);
+        project.setOwner(owner);
+        return projectService.saveProject(project);
+    }
+}
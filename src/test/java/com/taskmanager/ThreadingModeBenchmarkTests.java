@@ -0,0 +1,277 @@
+package com.taskmanager;
+
+import com.taskmanager.domain.User;
+import com.taskmanager.repository.UserRepository;
+import com.taskmanager.security.JwtUtil;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares throughput and p99 latency of {@code GET /api/projects} with requests on platform threads
+ * and on virtual threads. Every JDBC statement is delayed by a simulated database round trip so the run
+ * is bound by blocking I/O rather than by the CPU of the machine. The connection pool is as large as the
+ * client concurrency, which leaves the request threads as the only limit.
+ * <p>
+ * The virtual-thread run also fails if a virtual thread blocks while pinned to its carrier by a monitor held in
+ * application code, as reported by {@code -Djdk.tracePinnedThreads}, which the benchmark profile sets.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark} on Java 21. The knobs are the system properties
+ * {@code benchmark.concurrency}, {@code benchmark.db-latency-ms}, {@code benchmark.warmup-seconds} and
+ * {@code benchmark.seconds}.
+ */
+@Tag("benchmark")
+class ThreadingModeBenchmarkTests {
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 1000);
+    private static final long DB_LATENCY_MS = Long.getLong("benchmark.db-latency-ms", 100);
+    private static final long WARMUP_SECONDS = Long.getLong("benchmark.warmup-seconds", 5);
+    private static final long SECONDS = Long.getLong("benchmark.seconds", 15);
+
+    @Test
+    void virtualThreadsAgainstPlatformThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need a Java 21 runtime");
+
+        assertNotNull(System.getProperty("jdk.tracePinnedThreads"), "run with mvn test -Pbenchmark");
+
+        Result platform = run(false);
+        List<String> pinned = new ArrayList<>();
+        Result virtual = tracingPinnedThreads(pinned, () -> run(true));
+
+        System.out.printf("%nconcurrency=%d, db latency=%d ms, measured for %d s%n", CONCURRENCY, DB_LATENCY_MS, SECONDS);
+        System.out.println("platform: " + platform);
+        System.out.println("virtual:  " + virtual);
+        assertEquals(0, platform.errors);
+        assertEquals(0, virtual.errors);
+        assertEquals(List.of(), pinned, "application frames that pinned a virtual thread");
+    }
+
+    /**
+     * Runs {@code benchmark} while copying what is printed to {@code System.out}, where the JDK reports pinned
+     * virtual threads, and collects the reported frames that hold a monitor in application code.
+     */
+    private static Result tracingPinnedThreads(List<String> pinned, Callable<Result> benchmark) throws Exception {
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(new TeeOutputStream(out, printed), true));
+        try {
+            return benchmark.call();
+        } finally {
+            System.setOut(out);
+            printed.toString().lines()
+                    .filter(line -> line.contains("<== monitors") && line.contains("com.taskmanager."))
+                    .map(String::strip)
+                    .distinct()
+                    .forEach(pinned::add);
+        }
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ServletWebServerApplicationContext context = (ServletWebServerApplicationContext) new SpringApplicationBuilder(
+                TaskManagerApplication.class, SimulatedLatency.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-" + virtualThreads + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.hikari.maximum-pool-size=" + CONCURRENCY,
+                        "--spring.jpa.show-sql=false")) {
+            String token = seed(context);
+            SimulatedLatency.enabled = true;
+            try {
+                URI uri = URI.create("http://localhost:" + context.getWebServer().getPort() + "/api/projects");
+                return drive(uri, token);
+            } finally {
+                SimulatedLatency.enabled = false;
+            }
+        }
+    }
+
+    private String seed(ServletWebServerApplicationContext context) {
+        User user = new User();
+        user.setFirstName("Bench");
+        user.setLastName("Mark");
+        user.setEmail("benchmark@example.com");
+        user.setPassword("secret");
+        user.setActive(true);
+        user.setRoles(new HashSet<>());
+        user = context.getBean(UserRepository.class).save(user);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (int p = 0; p < 10; p++) {
+            jdbcTemplate.update("INSERT INTO projects (title, owner_id) VALUES (?, ?)", "Project " + p, user.getId());
+        }
+        return context.getBean(JwtUtil.class).generateToken(user);
+    }
+
+    /**
+     * Closed loop: each of the {@code CONCURRENCY} clients sends its next request as soon as the previous
+     * response arrives. Only responses that complete after the warmup are counted.
+     */
+    private Result drive(URI uri, String token) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(60))
+                .build();
+
+        long measureFrom = System.nanoTime() + Duration.ofSeconds(WARMUP_SECONDS).toNanos();
+        long measureTo = measureFrom + Duration.ofSeconds(SECONDS).toNanos();
+        Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch clients = new CountDownLatch(CONCURRENCY);
+
+        for (int i = 0; i < CONCURRENCY; i++) {
+            new Object() {
+                void send() {
+                    long start = System.nanoTime();
+                    client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                        long end = System.nanoTime();
+                        if (end >= measureFrom && end < measureTo) {
+                            if (failure != null || response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            } else {
+                                latencies.add(end - start);
+                            }
+                        }
+                        if (end < measureTo) {
+                            send();
+                        } else {
+                            clients.countDown();
+                        }
+                    });
+                }
+            }.send();
+        }
+        clients.await();
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new Result(sorted.length / (double) SECONDS, percentile(sorted, 0.50), percentile(sorted, 0.99), errors.get());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1_000_000.0;
+    }
+
+    private static class TeeOutputStream extends OutputStream {
+        private final OutputStream first;
+        private final OutputStream second;
+
+        TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+    }
+
+    private record Result(double throughput, double p50Millis, double p99Millis, long errors) {
+        @Override
+        public String toString() {
+            return String.format("%.0f req/s, p50 %.1f ms, p99 %.1f ms, %d errors", throughput, p50Millis, p99Millis, errors);
+        }
+    }
+
+    /**
+     * Delays every statement execution by {@link #DB_LATENCY_MS} while {@link #enabled} is set, standing in
+     * for the network round trip to a real database.
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class SimulatedLatency {
+
+        static volatile boolean enabled;
+
+        @Bean
+        static BeanPostProcessor simulatedLatencyDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new DelegatingDataSource(dataSource) {
+                        @Override
+                        public Connection getConnection() throws java.sql.SQLException {
+                            return delayed(super.getConnection(), Connection.class);
+                        }
+                    } : bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T delayed(T target, Class<T> type) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (enabled && method.getName().startsWith("execute")) {
+                    Thread.sleep(DB_LATENCY_MS);
+                }
+                Object result = invoke(target, method, args);
+                if (result instanceof PreparedStatement statement) {
+                    return delayed(statement, PreparedStatement.class);
+                }
+                if (result instanceof Statement statement) {
+                    return delayed(statement, Statement.class);
+                }
+                return result;
+            });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.domain.Task;
+import com.taskmanager.service.TaskService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser
+class ConditionalGetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void taskETagFollowsItsVersion() throws Exception {
+        Long id = seedProjectWithTask();
+        mockMvc.perform(get("/api/tasks/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"t-" + id + "-0\""));
+        long mapped = mappingCount("/api/tasks/{id}");
+
+        mockMvc.perform(get("/api/tasks/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"t-" + id + "-0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        assertEquals(mapped, mappingCount("/api/tasks/{id}"), "a 304 does not map the task");
+
+        renameTask(id);
+        mockMvc.perform(get("/api/tasks/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"t-" + id + "-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"t-" + id + "-1\""));
+    }
+
+    @Test
+    void projectETagsChangeWithTheirTasks() throws Exception {
+        Long taskId = seedProjectWithTask();
+        Long projectId = jdbcTemplate.queryForObject("SELECT project_id FROM tasks WHERE id = ?", Long.class, taskId);
+        String project = eTagOf("/api/projects/" + projectId);
+        String projects = eTagOf("/api/projects");
+        assertNotEquals(project, projects);
+        long mapped = mappingCount("/api/projects");
+
+        mockMvc.perform(get("/api/projects/{id}", projectId).header(HttpHeaders.IF_NONE_MATCH, project))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/projects").header(HttpHeaders.IF_NONE_MATCH, projects))
+                .andExpect(status().isNotModified());
+        assertEquals(mapped, mappingCount("/api/projects"), "a 304 does not map the projects");
+
+        renameTask(taskId);
+        assertNotEquals(project, eTagOf("/api/projects/" + projectId));
+        assertNotEquals(projects, eTagOf("/api/projects"));
+    }
+
+    private long mappingCount(String uri) {
+        Timer timer = registry.find("taskmanager.request.phase").tags("uri", uri, "phase", "mapping").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private String eTagOf(String uri) throws Exception {
+        return mockMvc.perform(get(uri)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private void renameTask(Long id) {
+        Task task = taskService.getTask(id);
+        task.setTitle("Renamed");
+        taskService.saveTask(task);
+    }
+
+    private Long seedProjectWithTask() {
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_active, security_version) " +
+                "VALUES ('Etag', 'User', 'etag@example.com', 'secret', TRUE, 0)");
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'etag@example.com'", Long.class);
+        jdbcTemplate.update("INSERT INTO projects (title, owner_id) VALUES ('Etag', ?)", userId);
+        Long projectId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM projects", Long.class);
+        jdbcTemplate.update("INSERT INTO tasks (id, title, status, priority, creator_id, project_id, created_at) " +
+                "VALUES (NEXT VALUE FOR tasks_seq, 'Polled', 'TODO', 'MEDIUM', ?, ?, CURRENT_TIMESTAMP)", userId, projectId);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM tasks", Long.class);
+    }
+}
@@ -0,0 +1,65 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.TestData;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tokens are stored under a unique digest, so two logins of one user must never sign the same token, even
+ * within the second that their {@code iat} is truncated to.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(TestData.class)
+class LoginTests {
+
+    private static final int LOGINS = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tokens");
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void loginsWithinOneSecondAllSucceed() throws Exception {
+        testData.createUser("login-twice@example.com");
+
+        for (int i = 0; i < LOGINS; i++) {
+            mockMvc.perform(post("/api/users/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"firstName\": \"Test\", \"lastName\": \"User\", " +
+                                    "\"email\": \"login-twice@example.com\", \"password\": \"secret\"}"))
+                    .andExpect(status().isOk());
+        }
+
+        assertEquals(2 * LOGINS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tokens", Integer.class));
+    }
+}
@@ -0,0 +1,171 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.repository.UserRepository;
+import com.taskmanager.security.JwtUtil;
+import com.taskmanager.security.PrincipalCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PatchTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    private final List<String> emails = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        emails.forEach(principalCache::invalidate);
+    }
+
+    @Test
+    void taskPatchRunsOneUpdateAndOneReadAndKeepsOtherColumns() throws Exception {
+        String token = tokenFor(insertUser("patch-creator@example.com"));
+        Long id = insertTask(insertProject("patch-creator@example.com"), "patch-creator@example.com");
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        patchTask(id, token, null, "{\"title\": \"Patched\"}")
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"t-" + id + "-1\""))
+                .andExpect(jsonPath("$.title").value("Patched"))
+                .andExpect(jsonPath("$.status").value("IN_PROGRESS"));
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT title, status, priority, version FROM tasks WHERE id = ?", id);
+        assertEquals("Patched", row.get("TITLE"));
+        assertEquals("IN_PROGRESS", row.get("STATUS"));
+        assertEquals("HIGH", row.get("PRIORITY"));
+        assertEquals(1L, row.get("VERSION"));
+    }
+
+    @Test
+    void taskPatchHonoursIfMatchAndOwnership() throws Exception {
+        String creator = tokenFor(insertUser("patch-creator@example.com"));
+        String other = tokenFor(insertUser("patch-other@example.com"));
+        Long id = insertTask(insertProject("patch-creator@example.com"), "patch-creator@example.com");
+        String eTag = "\"t-" + id + "-0\"";
+
+        patchTask(id, creator, eTag, "{\"priority\": \"LOW\"}").andExpect(status().isOk());
+        patchTask(id, creator, eTag, "{\"priority\": \"HIGHEST\"}").andExpect(status().isPreconditionFailed());
+        patchTask(id, creator, "\"t-" + (id + 1) + "-1\"", "{\"priority\": \"HIGHEST\"}")
+                .andExpect(status().isPreconditionFailed());
+        patchTask(id, other, null, "{\"priority\": \"HIGHEST\"}").andExpect(status().isForbidden());
+        patchTask(id + 1000, creator, null, "{\"priority\": \"HIGHEST\"}").andExpect(status().isNotFound());
+        patchTask(id, creator, null, "{\"title\": \"x\"}").andExpect(status().isBadRequest());
+
+        assertEquals("LOW", jdbcTemplate.queryForObject("SELECT priority FROM tasks WHERE id = ?", String.class, id));
+    }
+
+    @Test
+    void projectPatchChecksTheProjectVersionFromItsETag() throws Exception {
+        String token = tokenFor(insertUser("patch-owner@example.com"));
+        Long id = insertProject("patch-owner@example.com");
+        String eTag = mockMvc.perform(get("/api/projects/{id}", id).header("Authorization", "Bearer " + token))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(patch("/api/projects/{id}", id)
+                        .header("Authorization", "Bearer " + token)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\": \"Patched\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Patch tests"))
+                .andExpect(jsonPath("$.description").value("Patched"));
+        mockMvc.perform(patch("/api/projects/{id}", id)
+                        .header("Authorization", "Bearer " + token)
+                        .header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\": \"Lost update\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        assertEquals("Patched", jdbcTemplate.queryForObject("SELECT description FROM projects WHERE id = ?", String.class, id));
+    }
+
+    private ResultActions patchTask(Long id, String token, String ifMatch, String body) throws Exception {
+        var request = patch("/api/tasks/{id}", id)
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        return mockMvc.perform(request);
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Also warms the second-level cache with the user, so that loading the principal runs no SQL.
+     */
+    private String tokenFor(String email) {
+        return jwtUtil.generateToken(userRepository.findByEmail(email).orElseThrow());
+    }
+
+    private String insertUser(String email) {
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_active, security_version) " +
+                "VALUES ('Patch', 'User', ?, 'secret', TRUE, 0)", email);
+        emails.add(email);
+        jdbcTemplate.update("INSERT INTO user_role (user_id, roles) SELECT id, 'USER' FROM users WHERE email = ?", email);
+        return email;
+    }
+
+    private Long insertProject(String ownerEmail) {
+        jdbcTemplate.update("INSERT INTO projects (title, owner_id) SELECT 'Patch tests', id FROM users WHERE email = ?",
+                ownerEmail);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM projects", Long.class);
+    }
+
+    private Long insertTask(Long projectId, String creatorEmail) {
+        jdbcTemplate.update("INSERT INTO tasks (id, title, status, priority, creator_id, project_id, created_at) " +
+                "SELECT NEXT VALUE FOR tasks_seq, 'Original', 'IN_PROGRESS', 'HIGH', id, ?, CURRENT_TIMESTAMP " +
+                "FROM users WHERE email = ?", projectId, creatorEmail);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM tasks", Long.class);
+    }
+}
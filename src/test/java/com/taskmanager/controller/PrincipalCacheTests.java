@@ -0,0 +1,116 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.TestData;
+import com.taskmanager.domain.User;
+import com.taskmanager.security.AuthenticatedUser;
+import com.taskmanager.security.JwtUtil;
+import com.taskmanager.security.PrincipalCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A user changed through {@code PATCH /api/users/{id}} must be seen by the very next request, even though
+ * principals are cached.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(TestData.class)
+class PrincipalCacheTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void emailChangeIsSeenByTheNextRequest() throws Exception {
+        User user = testData.createUser("principal-before@example.com");
+        String token = jwtUtil.generateToken(user);
+        getUser(user.getId(), token).andExpect(status().isOk());
+
+        patchUser(user.getId(), token, "{\"email\": \"principal-after@example.com\"}").andExpect(status().isOk());
+
+        getUser(user.getId(), token).andExpect(status().isForbidden());
+        principalCache.invalidate("principal-after@example.com");
+    }
+
+    @Test
+    void deactivationIsSeenByTheNextRequest() throws Exception {
+        User user = testData.createUser("principal-inactive@example.com");
+        String token = jwtUtil.generateToken(user);
+        getUser(user.getId(), token).andExpect(status().isOk());
+
+        patchUser(user.getId(), token, "{\"active\": false}").andExpect(status().isOk());
+
+        getUser(user.getId(), token).andExpect(status().isForbidden());
+        principalCache.invalidate("principal-inactive@example.com");
+    }
+
+    @Test
+    void principalLoadedAcrossAnInvalidationIsNotCached() {
+        AuthenticatedUser stale = new AuthenticatedUser(1L, "principal-race@example.com", Set.of(), true);
+        AtomicInteger loads = new AtomicInteger();
+
+        principalCache.get("principal-race@example.com", email -> {
+            loads.incrementAndGet();
+            principalCache.invalidate(email);
+            return stale;
+        });
+        principalCache.get("principal-race@example.com", email -> {
+            loads.incrementAndGet();
+            return stale;
+        });
+
+        assertEquals(2, loads.get());
+        principalCache.invalidate("principal-race@example.com");
+    }
+
+    private ResultActions getUser(Long id, String token) throws Exception {
+        return mockMvc.perform(get("/api/users/{id}", id).header("Authorization", "Bearer " + token));
+    }
+
+    private ResultActions patchUser(Long id, String token, String body) throws Exception {
+        return mockMvc.perform(patch("/api/users/{id}", id)
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+}
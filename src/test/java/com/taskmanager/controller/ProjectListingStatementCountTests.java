@@ -0,0 +1,103 @@
+package com.taskmanager.controller;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser
+class ProjectListingStatementCountTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void listingRunsOneStatementWhateverTheDataSize() throws Exception {
+        seed(2, 3);
+        assertEquals(1, statementsForListing(2, 3));
+
+        seed(20, 10);
+        assertEquals(1, statementsForListing(22, 3));
+    }
+
+    @Test
+    void singleProjectViewRunsOneStatement() throws Exception {
+        seed(1, 25);
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM projects", Long.class);
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/projects/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(25));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private long statementsForListing(int expectedProjects, int expectedTasksOfFirst) throws Exception {
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/projects"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(expectedProjects))
+                .andExpect(jsonPath("$[0].tasks.length()").value(expectedTasksOfFirst));
+
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Creates {@code projects} projects, each owned by its own user and holding {@code tasksPerProject}
+     * tasks whose creator and assignee are two more distinct users.
+     */
+    private void seed(int projects, int tasksPerProject) {
+        for (int p = 0; p < projects; p++) {
+            Long owner = insertUser("owner");
+            jdbcTemplate.update("INSERT INTO projects (title, owner_id) VALUES (?, ?)", "Project " + p, owner);
+            Long project = jdbcTemplate.queryForObject("SELECT MAX(id) FROM projects", Long.class);
+            for (int t = 0; t < tasksPerProject; t++) {
+                jdbcTemplate.update("INSERT INTO tasks (id, title, status, priority, creator_id, assignee_id, project_id, created_at) " +
+                                "VALUES (NEXT VALUE FOR tasks_seq, ?, 'TODO', 'MEDIUM', ?, ?, ?, CURRENT_TIMESTAMP)",
+                        "Task " + t, insertUser("creator"), insertUser("assignee"), project);
+            }
+        }
+    }
+
+    private Long insertUser(String prefix) {
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_active, security_version) " +
+                "VALUES ('First', 'Last', CONCAT(?, RANDOM_UUID(), '@example.com'), 'secret', TRUE, 0)", prefix);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM users", Long.class);
+    }
+}
@@ -0,0 +1,130 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.TestData;
+import com.taskmanager.domain.Project;
+import com.taskmanager.domain.Task;
+import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
+import com.taskmanager.dto.TaskPatch;
+import com.taskmanager.service.ProjectTaskCounts;
+import com.taskmanager.service.TaskService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@Import(TestData.class)
+@AutoConfigureMockMvc
+@WithMockUser
+class ProjectStatsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ProjectTaskCounts taskCounts;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM task_tombstones");
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void countsFollowTaskWrites() throws Exception {
+        User owner = testData.createUser("stats@example.com");
+        Project project = testData.createProject(owner, "Stats");
+        Project other = testData.createProject(owner, "Other");
+        List<Task> tasks = taskService.saveTasks(List.of(
+                task(owner, project, Priority.HIGH), task(owner, project, Priority.HIGH), task(owner, project, Priority.LOW)));
+        taskService.saveTask(task(owner, other, Priority.LOWEST));
+
+        mockMvc.perform(get("/api/projects/{id}/stats", project.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.byStatus.TODO").value(3))
+                .andExpect(jsonPath("$.byPriority.HIGH").value(2))
+                .andExpect(jsonPath("$.counts.TODO.LOW").value(1))
+                .andExpect(jsonPath("$.counts.DONE.HIGH").value(0));
+
+        taskService.patchTask(tasks.get(0).getId(), owner.getId(), null,
+                new TaskPatch(null, null, Status.DONE, Priority.HIGHEST, null, null), null);
+        taskService.patchTask(tasks.get(1).getId(), owner.getId(), null,
+                new TaskPatch("Renamed", null, null, null, null, null), null);
+        taskService.findById(tasks.get(2).getId());
+
+        mockMvc.perform(get("/api/projects/{id}/stats", project.getId()))
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.counts.DONE.HIGHEST").value(1))
+                .andExpect(jsonPath("$.counts.TODO.HIGH").value(1))
+                .andExpect(jsonPath("$.counts.TODO.LOW").value(0));
+        mockMvc.perform(get("/api/projects/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].projectId").value(project.getId()))
+                .andExpect(jsonPath("$[1].byPriority.LOWEST").value(1));
+        mockMvc.perform(get("/api/projects/{id}/stats", other.getId() + 1)).andExpect(status().isNotFound());
+        long corrections = taskCounts.getCorrectionCount();
+        taskCounts.reconcile();
+        assertEquals(corrections, taskCounts.getCorrectionCount());
+    }
+
+    @Test
+    void reconciliationCorrectsCountsThatDrifted() throws Exception {
+        User owner = testData.createUser("stats@example.com");
+        Project project = testData.createProject(owner, "Stats");
+        taskService.saveTask(task(owner, project, Priority.MEDIUM));
+        jdbcTemplate.update("INSERT INTO tasks (id, title, status, priority, creator_id, project_id) " +
+                "VALUES (NEXT VALUE FOR tasks_seq, 'Imported', 'IN_PROGRESS', 'MEDIUM', ?, ?)", owner.getId(), project.getId());
+        jdbcTemplate.update("INSERT INTO projects (title, owner_id) VALUES ('Imported', ?)", owner.getId());
+
+        taskCounts.reconcile();
+        mockMvc.perform(get("/api/projects/{id}/stats", project.getId()))
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.counts.IN_PROGRESS.MEDIUM").value(1));
+        mockMvc.perform(get("/api/projects/stats"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].total").value(0));
+    }
+
+    private static Task task(User creator, Project project, Priority priority) {
+        Task task = new Task();
+        task.setTitle("Counted");
+        task.setPriority(priority);
+        task.setCreator(creator);
+        task.setProject(project);
+        return task;
+    }
+}
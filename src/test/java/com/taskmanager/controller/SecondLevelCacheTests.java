@@ -0,0 +1,131 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.Role;
+import com.taskmanager.repository.UserRepository;
+import com.taskmanager.security.JwtUtil;
+import com.taskmanager.service.ProjectService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SecondLevelCacheTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void findByEmailIsServedFromTheNaturalIdCache() {
+        Long id = insertUser("cached@example.com");
+        userRepository.findByEmail("cached@example.com").orElseThrow();
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        User user = userRepository.findByEmail("cached@example.com").orElseThrow();
+
+        assertEquals(id, user.getId());
+        assertEquals(Set.of(Role.USER), user.getRoles());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getNaturalIdCacheHitCount());
+        assertTrue(registry.get("hibernate.second.level.cache.requests")
+                .tags("region", "users", "result", "hit").functionCounter().count() > 0);
+    }
+
+    @Test
+    void userUpdatesThroughTheControllerReachTheCache() throws Exception {
+        Long id = insertUser("before@example.com");
+        String token = jwtUtil.generateToken(userRepository.findByEmail("before@example.com").orElseThrow());
+
+        mockMvc.perform(patch("/api/users/{id}", id)
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\": \"Renamed\", \"email\": \"after@example.com\"}"))
+                .andExpect(status().isOk());
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        assertEquals("Renamed", userRepository.findById(id).orElseThrow().getFirstName());
+        assertEquals("Renamed", userRepository.findByEmail("after@example.com").orElseThrow().getFirstName());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(userRepository.findByEmail("before@example.com").isEmpty());
+    }
+
+    @Test
+    void projectUpdatesAndDeletesThroughTheControllerAreNotServedStale() throws Exception {
+        Long owner = insertUser("owner@example.com");
+        String token = jwtUtil.generateToken(userRepository.findById(owner).orElseThrow());
+        jdbcTemplate.update("INSERT INTO projects (title, owner_id) VALUES ('Cached', ?)", owner);
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM projects", Long.class);
+        assertEquals("Cached", projectService.findById(id).getTitle());
+
+        mockMvc.perform(patch("/api/projects/{id}", id)
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Renamed\"}"))
+                .andExpect(status().isOk());
+        assertEquals("Renamed", projectService.findById(id).getTitle());
+
+        mockMvc.perform(delete("/api/projects/{id}", id).header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        assertNull(projectService.findById(id));
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private Long insertUser(String email) {
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_active, security_version) " +
+                "VALUES ('First', 'Last', ?, 'secret', TRUE, 0)", email);
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+        jdbcTemplate.update("INSERT INTO user_role (user_id, roles) VALUES (?, 'USER')", id);
+        return id;
+    }
+}
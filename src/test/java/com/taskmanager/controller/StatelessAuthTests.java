@@ -0,0 +1,121 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.Role;
+import com.taskmanager.repository.UserRepository;
+import com.taskmanager.security.JwtUtil;
+import com.taskmanager.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Access tokens authenticated from their claims alone must stop working as soon as their user is deactivated
+ * or changes email or password.
+ */
+@SpringBootTest(properties = "taskmanager.security.stateless-auth=true")
+@AutoConfigureMockMvc
+class StatelessAuthTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void deactivationRevokesIssuedTokensAndRejectsNewOnes() throws Exception {
+        User admin = saveUser("stateless-admin@example.com", Role.ADMIN);
+        User user = saveUser("stateless-user@example.com", Role.USER);
+        String adminToken = jwtUtil.generateToken(admin);
+        String token = jwtUtil.generateToken(user);
+        getUser(user.getId(), token).andExpect(status().isOk());
+
+        patchUser(user.getId(), adminToken, "{\"active\": false}").andExpect(status().isOk());
+
+        getUser(user.getId(), token).andExpect(status().isForbidden());
+        String tokenAfter = jwtUtil.generateToken(userRepository.findById(user.getId()).orElseThrow());
+        getUser(user.getId(), tokenAfter).andExpect(status().isForbidden());
+
+        patchUser(user.getId(), adminToken, "{\"active\": true}").andExpect(status().isOk());
+
+        getUser(user.getId(), tokenAfter).andExpect(status().isForbidden());
+        getUser(user.getId(), jwtUtil.generateToken(userRepository.findById(user.getId()).orElseThrow()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void emailChangeRevokesTokensIssuedForTheOldEmail() throws Exception {
+        User user = saveUser("stateless-before@example.com", Role.USER);
+        String token = jwtUtil.generateToken(user);
+
+        patchUser(user.getId(), token, "{\"email\": \"stateless-after@example.com\"}").andExpect(status().isOk());
+        User taker = saveUser("stateless-before@example.com", Role.USER);
+
+        getUser(taker.getId(), token).andExpect(status().isForbidden());
+        getUser(user.getId(), jwtUtil.generateToken(userRepository.findById(user.getId()).orElseThrow()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void patchWithoutTheActiveFlagKeepsTheUserActive() throws Exception {
+        User user = saveUser("stateless-name@example.com", Role.USER);
+        String token = jwtUtil.generateToken(user);
+
+        patchUser(user.getId(), token, "{\"firstName\": \"Renamed\"}").andExpect(status().isOk());
+
+        getUser(user.getId(), token).andExpect(status().isOk());
+    }
+
+    private User saveUser(String email, Role role) {
+        User user = new User();
+        user.setFirstName("Stateless");
+        user.setLastName("User");
+        user.setEmail(email);
+        user.setPassword("secret");
+        user.getRoles().add(role);
+        return userService.saveUser(user);
+    }
+
+    private ResultActions getUser(Long id, String token) throws Exception {
+        return mockMvc.perform(get("/api/users/{id}", id).header("Authorization", "Bearer " + token));
+    }
+
+    private ResultActions patchUser(Long id, String token, String body) throws Exception {
+        return mockMvc.perform(patch("/api/users/{id}", id)
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+}
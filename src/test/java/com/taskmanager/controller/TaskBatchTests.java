@@ -0,0 +1,147 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.TestData;
+import com.taskmanager.domain.Project;
+import com.taskmanager.domain.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(TestData.class)
+@WithMockUser(username = TaskBatchTests.CREATOR)
+class TaskBatchTests {
+
+    static final String CREATOR = "batch-creator@example.com";
+    private static final String NEW_ASSIGNEE = "{\"email\": \"batch-new@example.com\", \"firstName\": \"New\", " +
+            "\"lastName\": \"Assignee\", \"password\": \"secret\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        project = testData.createProject(testData.createUser(CREATOR), "Batch");
+        testData.createUser("batch-assignee@example.com");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void batchLooksUpOnceAndInsertsInJdbcBatches() throws Exception {
+        List<String> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String assignee = switch (i % 3) {
+                case 0 -> "{\"email\": \"batch-assignee@example.com\"}";
+                case 1 -> NEW_ASSIGNEE;
+                default -> null;
+            };
+            tasks.add(task("Task " + i, project.getId(), assignee));
+        }
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        createTasks(tasks)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(200))
+                .andExpect(jsonPath("$[199].title").value("Task 199"));
+
+        assertEquals(201, statistics.getEntityInsertCount(), "the tasks and the new assignee");
+        // One lookup of the users and one of the projects, two inserts for the new assignee, the roles of the
+        // two known users for the response, and per 50 tasks one block of ids and one insert batch.
+        assertTrue(statistics.getPrepareStatementCount() <= 2 + 2 + 2 + 2 * 5,
+                "statements: " + statistics.getPrepareStatementCount());
+        assertEquals(200, count("SELECT COUNT(*) FROM tasks WHERE project_id = " + project.getId()));
+        assertEquals(67, count("SELECT COUNT(*) FROM tasks t JOIN users u ON u.id = t.assignee_id " +
+                "WHERE u.email = 'batch-new@example.com'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM users WHERE email = 'batch-new@example.com'"));
+    }
+
+    @Test
+    void theFirstInvalidTaskIsReportedAndNothingIsCreated() throws Exception {
+        createTasks(List.of(task("First", project.getId(), NEW_ASSIGNEE), task("x", project.getId(), null)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Task 1: title size must be between 2 and 100"));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM tasks"));
+        assertEquals(0, count("SELECT COUNT(*) FROM users WHERE email = 'batch-new@example.com'"));
+    }
+
+    @Test
+    void anUnknownProjectIsRejectedAndNothingIsCreated() throws Exception {
+        createTasks(List.of(task("First", project.getId(), NEW_ASSIGNEE), task("Second", project.getId() + 1000, null)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Task 1: project " + (project.getId() + 1000) + " not found."));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM tasks"));
+        assertEquals(0, count("SELECT COUNT(*) FROM users WHERE email = 'batch-new@example.com'"));
+    }
+
+    @Test
+    void batchSizeIsBounded() throws Exception {
+        createTasks(List.of()).andExpect(status().isBadRequest());
+        createTasks(Collections.nCopies(10_001, task("Task", project.getId(), null))).andExpect(status().isBadRequest());
+
+        assertEquals(0, count("SELECT COUNT(*) FROM tasks"));
+    }
+
+    private ResultActions createTasks(List<String> tasks) throws Exception {
+        return mockMvc.perform(post("/api/tasks/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + String.join(",", tasks) + "]"));
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private static String task(String title, Long projectId, String assignee) {
+        return "{\"title\": \"" + title + "\", \"project\": {\"id\": " + projectId + "}" +
+                (assignee == null ? "" : ", \"assignee\": " + assignee) + "}";
+    }
+}
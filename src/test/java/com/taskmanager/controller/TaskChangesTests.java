@@ -0,0 +1,195 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.TestData;
+import com.jayway.jsonpath.JsonPath;
+import com.taskmanager.domain.Project;
+import com.taskmanager.domain.Task;
+import com.taskmanager.domain.User;
+import com.taskmanager.dto.TaskPatch;
+import com.taskmanager.service.TaskChangeLog;
+import com.taskmanager.service.TaskService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@Import(TestData.class)
+@AutoConfigureMockMvc
+@WithMockUser
+class TaskChangesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskChangeLog changeLog;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM task_tombstones");
+        jdbcTemplate.update("UPDATE task_tombstone_horizon SET pruned_through = 0");
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void changesFollowCreatesPatchesAndDeletesInStampOrder() throws Exception {
+        User creator = testData.createUser("changes-creator@example.com");
+        Project project = testData.createProject(creator, "Changes tests");
+        List<Task> tasks = taskService.saveTasks(List.of(task("First", creator, project),
+                task("Second", creator, project), task("Third", creator, project)));
+
+        String cursor = JsonPath.read(mockMvc.perform(get("/api/tasks/changes").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tasks.length()").value(2))
+                .andExpect(jsonPath("$.tasks[0].title").value("First"))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andReturn().getResponse().getContentAsString(), "$.nextCursor");
+        cursor = JsonPath.read(changesSince(cursor)
+                .andExpect(jsonPath("$.tasks.length()").value(1))
+                .andExpect(jsonPath("$.tasks[0].title").value("Third"))
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andReturn().getResponse().getContentAsString(), "$.nextCursor");
+        changesSince(cursor)
+                .andExpect(jsonPath("$.tasks.length()").value(0))
+                .andExpect(jsonPath("$.deletedIds.length()").value(0))
+                .andExpect(jsonPath("$.nextCursor").value(cursor));
+
+        Long patched = tasks.get(0).getId();
+        Long deleted = tasks.get(1).getId();
+        taskService.patchTask(patched, creator.getId(), null,
+                new TaskPatch("Patched", null, null, null, null, null), null);
+        taskService.findById(deleted);
+
+        changesSince(cursor)
+                .andExpect(jsonPath("$.tasks.length()").value(1))
+                .andExpect(jsonPath("$.tasks[0].id").value(patched))
+                .andExpect(jsonPath("$.tasks[0].title").value("Patched"))
+                .andExpect(jsonPath("$.deletedIds.length()").value(1))
+                .andExpect(jsonPath("$.deletedIds[0]").value(deleted));
+
+        mockMvc.perform(get("/api/tasks/changes").param("since", "not a cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void aBatchDrawsOneStampBlockPerFiftyTasks() {
+        User creator = testData.createUser("changes-batch@example.com");
+        Project project = testData.createProject(creator, "Changes batch");
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            tasks.add(task("Batch " + i, creator, project));
+        }
+        long before = stampSequenceValue();
+
+        taskService.saveTasks(tasks);
+
+        long increment = jdbcTemplate.queryForObject(
+                "SELECT INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'TASK_CHANGE_SEQ'", Long.class);
+        assertTrue((stampSequenceValue() - before) / increment <= 3, "three blocks of 50 cover 120 stamps");
+        for (int i = 1; i < tasks.size(); i++) {
+            assertTrue(tasks.get(i - 1).getChangeSeq() < tasks.get(i).getChangeSeq());
+        }
+    }
+
+    @Test
+    void changesOfOpenTransactionsAreHeldBack() throws Exception {
+        CountDownLatch stamped = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> stamps = new ArrayList<>();
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    stamps.add(changeLog.next());
+                    stamped.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(stamped.await(10, TimeUnit.SECONDS));
+
+        long later = new TransactionTemplate(transactionManager).execute(status -> changeLog.next());
+        assertTrue(changeLog.watermark() < stamps.get(0));
+
+        release.countDown();
+        writer.get(10, TimeUnit.SECONDS);
+        assertEquals(later, changeLog.watermark());
+    }
+
+    @Test
+    void expiredTombstonesArePrunedAndOlderCursorsAreGone() throws Exception {
+        changeLog.recordDeletion(1001L);
+        jdbcTemplate.update("UPDATE task_tombstones SET deleted_at = DATEADD('DAY', -31, deleted_at)");
+        String cursor = Utils.encodeCursor(changeLog.watermark());
+        changeLog.recordDeletion(1002L);
+
+        changeLog.pruneTombstones();
+
+        assertEquals(List.of(1002L), jdbcTemplate.queryForList("SELECT task_id FROM task_tombstones", Long.class));
+        changesSince(cursor).andExpect(jsonPath("$.deletedIds[0]").value(1002));
+        String expired = Utils.encodeCursor(changeLog.prunedThrough() - 1);
+        mockMvc.perform(get("/api/tasks/changes").param("since", expired)).andExpect(status().isGone());
+        mockMvc.perform(get("/api/tasks/changes")).andExpect(status().isOk());
+    }
+
+    private long stampSequenceValue() {
+        return jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'TASK_CHANGE_SEQ'", Long.class);
+    }
+
+    private ResultActions changesSince(String cursor) throws Exception {
+        return mockMvc.perform(get("/api/tasks/changes").param("since", cursor)).andExpect(status().isOk());
+    }
+
+    private static Task task(String title, User creator, Project project) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setCreator(creator);
+        task.setProject(project);
+        return task;
+    }
+}
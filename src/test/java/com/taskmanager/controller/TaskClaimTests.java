@@ -0,0 +1,200 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.TestData;
+import com.taskmanager.domain.Project;
+import com.taskmanager.domain.Task;
+import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
+import com.taskmanager.dto.TaskPatch;
+import com.taskmanager.service.ProjectTaskCounts;
+import com.taskmanager.service.TaskQueue;
+import com.taskmanager.service.TaskService;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@Import(TestData.class)
+@AutoConfigureMockMvc
+class TaskClaimTests {
+
+    private static final String WORKER = "claim-worker@example.com";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskQueue taskQueue;
+
+    @Autowired
+    private ProjectTaskCounts taskCounts;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.queryForList("SELECT id FROM tasks", Long.class).forEach(taskQueue::remove);
+        jdbcTemplate.update("DELETE FROM task_tombstones");
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    @WithMockUser(WORKER)
+    void claimsTheNextTaskByPriorityThenDueDate() throws Exception {
+        User worker = testData.createUser(WORKER);
+        User other = testData.createUser("claim-other@example.com");
+        Project project = testData.createProject(worker, "Claims");
+        LocalDateTime tomorrow = LocalDateTime.now().plusDays(1);
+        List<Task> tasks = taskService.saveTasks(List.of(
+                task(worker, project, null, Priority.LOW, null),
+                task(worker, project, null, Priority.HIGH, tomorrow.plusDays(1)),
+                task(worker, project, null, Priority.HIGH, tomorrow),
+                task(worker, project, worker, Priority.MEDIUM, null),
+                task(worker, project, other, Priority.HIGHEST, null)));
+        Task done = task(worker, project, null, Priority.HIGHEST, null);
+        done.setStatus(Status.DONE);
+        taskService.saveTask(done);
+
+        mockMvc.perform(get("/api/tasks/next").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].id").value(tasks.get(2).getId()))
+                .andExpect(jsonPath("$[1].id").value(tasks.get(1).getId()))
+                .andExpect(jsonPath("$[2].id").value(tasks.get(3).getId()))
+                .andExpect(jsonPath("$[3].id").value(tasks.get(0).getId()));
+
+        mockMvc.perform(post("/api/tasks/claim"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(tasks.get(2).getId()))
+                .andExpect(jsonPath("$.status").value("IN_PROGRESS"))
+                .andExpect(jsonPath("$.assigneeId").value(worker.getId()));
+
+        taskService.patchTask(tasks.get(1).getId(), worker.getId(), null,
+                new TaskPatch(null, null, null, Priority.LOWEST, null, null), null);
+        // A write that bypasses the services leaves a stale entry, which the claim requeues.
+        jdbcTemplate.update("UPDATE tasks SET version = version + 1 WHERE id = ?", tasks.get(3).getId());
+        long conflicts = taskQueue.getConflictCount();
+        mockMvc.perform(post("/api/tasks/claim")).andExpect(jsonPath("$.id").value(tasks.get(3).getId()));
+        assertEquals(conflicts + 1, taskQueue.getConflictCount());
+        mockMvc.perform(post("/api/tasks/claim")).andExpect(jsonPath("$.id").value(tasks.get(0).getId()));
+        mockMvc.perform(post("/api/tasks/claim")).andExpect(jsonPath("$.id").value(tasks.get(1).getId()));
+        mockMvc.perform(post("/api/tasks/claim")).andExpect(status().isNotFound());
+
+        assertEquals(4L, (long) taskCounts.find(project.getId()).counts().get(Status.IN_PROGRESS).values().stream()
+                .mapToLong(Long::longValue).sum());
+        assertEquals(1L, taskCounts.find(project.getId()).counts().get(Status.TODO).get(Priority.HIGHEST));
+    }
+
+    @Test
+    void concurrentClaimersNeverGetTheSameTask() throws Exception {
+        List<User> workers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            workers.add(testData.createUser("claimer-" + i + "@example.com"));
+        }
+        Project project = testData.createProject(workers.get(0), "Claims");
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(task(workers.get(0), project, null, Priority.values()[i % Priority.values().length], null));
+        }
+        taskService.saveTasks(tasks);
+
+        ConcurrentLinkedQueue<Long> claimed = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (User worker : workers) {
+                futures.add(executor.submit(() -> {
+                    for (Task task = taskService.claimNextTask(worker.getId()); task != null;
+                         task = taskService.claimNextTask(worker.getId())) {
+                        claimed.add(task.getId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(200, claimed.size());
+        assertEquals(200, new HashSet<>(claimed).size());
+        assertEquals(200, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM tasks WHERE status = 'IN_PROGRESS' AND assignee_id IS NOT NULL", Integer.class));
+        assertNull(taskService.claimNextTask(workers.get(0).getId()));
+        Set<Long> inProgress = new HashSet<>(taskCounts.find(project.getId()).counts().get(Status.IN_PROGRESS).values());
+        assertEquals(Set.of(40L), inProgress);
+    }
+
+    @Test
+    void aClaimThatFailsLeavesTheTaskClaimable() {
+        User worker = testData.createUser(WORKER);
+        Project project = testData.createProject(worker, "Claims");
+        Task task = taskService.saveTask(task(worker, project, null, Priority.MEDIUM, null));
+
+        // Makes the guarded UPDATE fail after the entry has been polled.
+        jdbcTemplate.execute("ALTER TABLE tasks ADD CONSTRAINT tasks_claim_fails CHECK (status <> 'IN_PROGRESS')");
+        try {
+            assertThrows(PersistenceException.class, () -> taskService.claimNextTask(worker.getId()));
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE tasks DROP CONSTRAINT tasks_claim_fails");
+        }
+
+        assertEquals(task.getId(), taskService.claimNextTask(worker.getId()).getId());
+        assertEquals("IN_PROGRESS", jdbcTemplate.queryForObject(
+                "SELECT status FROM tasks WHERE id = ?", String.class, task.getId()));
+    }
+
+    private static Task task(User creator, Project project, User assignee, Priority priority, LocalDateTime dueDate) {
+        Task task = new Task();
+        task.setTitle("Claimable");
+        task.setCreator(creator);
+        task.setAssignee(assignee);
+        task.setProject(project);
+        task.setPriority(priority);
+        task.setDueDate(dueDate);
+        return task;
+    }
+}
@@ -0,0 +1,127 @@
+package com.taskmanager.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.taskmanager.dto.TaskDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Exports tasks under the small heap the surefire plugin runs with. The database lives in a file so that
+ * only the export itself competes for heap. The million-row export is tagged {@code export} and runs with
+ * {@code mvn test -Pexport}.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:file:./target/h2/export-tests;LAZY_QUERY_EXECUTION=TRUE;CACHE_SIZE=8192")
+class TaskExportTests {
+
+    private static final int ROWS = Integer.getInteger("export.tests.rows", 100_000);
+    private static final int LARGE_ROWS = Integer.getInteger("export.tests.large-rows", 1_000_000);
+    private static final int GZIP_ROWS = 1_000;
+
+    @Autowired
+    private TaskController taskController;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.execute("TRUNCATE TABLE tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void exportsEveryTaskAsOneJsonLine() throws IOException {
+        assertExportsEveryTask(ROWS);
+    }
+
+    @Test
+    @Tag("export")
+    void exportsAMillionTasksWithoutBuffering() throws IOException {
+        assertExportsEveryTask(LARGE_ROWS);
+    }
+
+    @Test
+    void gzipExportInflatesToTheSameLines() throws IOException {
+        Long projectId = insertTasks(GZIP_ROWS);
+
+        ResponseEntity<StreamingResponseBody> response = taskController.exportTasks(true);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        response.getBody().writeTo(compressed);
+
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        LineCountingOutputStream out = new LineCountingOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            in.transferTo(out);
+        }
+        assertEquals(GZIP_ROWS, out.lines);
+        TaskDTO first = objectMapper.readValue(out.firstLine.toByteArray(), TaskDTO.class);
+        assertEquals("Task 1", first.getTitle());
+        assertEquals(projectId, first.getProjectId());
+    }
+
+    private void assertExportsEveryTask(int rows) throws IOException {
+        Long projectId = insertTasks(rows);
+
+        ResponseEntity<StreamingResponseBody> response = taskController.exportTasks(false);
+        LineCountingOutputStream out = new LineCountingOutputStream();
+        response.getBody().writeTo(out);
+
+        assertEquals(rows, out.lines);
+        TaskDTO first = objectMapper.readValue(out.firstLine.toByteArray(), TaskDTO.class);
+        assertEquals("Task 1", first.getTitle());
+        assertEquals(projectId, first.getProjectId());
+    }
+
+    /**
+     * Inserts {@code rows} tasks titled {@code Task 1} and on into one project.
+     *
+     * @return the id of the project.
+     */
+    private Long insertTasks(int rows) {
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_active, security_version) " +
+                "VALUES ('Export', 'Owner', 'export@example.com', 'secret', TRUE, 0)");
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'export@example.com'", Long.class);
+        jdbcTemplate.update("INSERT INTO projects (title, owner_id) VALUES ('Export', ?)", userId);
+        Long projectId = jdbcTemplate.queryForObject("SELECT id FROM projects WHERE owner_id = ?", Long.class, userId);
+        jdbcTemplate.update("INSERT INTO tasks (id, title, description, status, priority, creator_id, project_id, created_at) " +
+                "SELECT NEXT VALUE FOR tasks_seq, CONCAT('Task ', X), 'Synthetic export row', 'TODO', 'MEDIUM', ?, ?, CURRENT_TIMESTAMP " +
+                "FROM SYSTEM_RANGE(1, ?)", userId, projectId, rows);
+        return projectId;
+    }
+
+    private static class LineCountingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream firstLine = new ByteArrayOutputStream();
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            } else if (lines == 0) {
+                firstLine.write(b);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.TestData;
+import com.jayway.jsonpath.JsonPath;
+import com.taskmanager.domain.Project;
+import com.taskmanager.domain.Task;
+import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
+import com.taskmanager.service.TaskService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@Import(TestData.class)
+@AutoConfigureMockMvc
+@WithMockUser
+class TaskListingTests {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2030, 1, 1, 9, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM task_tombstones");
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void pagesFollowIdsAndApplyEveryFilter() throws Exception {
+        User creator = testData.createUser("listing-creator@example.com");
+        Project project = testData.createProject(creator, "Listing tests");
+        taskService.saveTasks(List.of(
+                task("AA", creator, project, Status.TODO, Priority.HIGH, null),
+                task("BB", creator, project, Status.DONE, Priority.HIGH, null),
+                task("CC", creator, project, Status.TODO, Priority.LOW, null),
+                task("DD", creator, project, Status.TODO, Priority.HIGH, null),
+                task("EE", creator, project, Status.TODO, Priority.HIGH, null)));
+
+        assertEquals(List.of("AA", "BB", "CC", "DD", "EE"), titles("limit", "2"));
+        assertEquals(List.of("AA", "DD", "EE"), titles("limit", "2", "status", "TODO", "priority", "HIGH"));
+        assertEquals(List.of("CC"), titles("priority", "LOW", "creatorId", creator.getId().toString(),
+                "projectId", project.getId().toString()));
+        assertEquals(List.of(), titles("projectId", Long.toString(project.getId() + 1)));
+    }
+
+    @Test
+    void dueDateRangesArePagedByDueDateThenId() throws Exception {
+        User creator = testData.createUser("listing-due@example.com");
+        Project project = testData.createProject(creator, "Listing tests");
+        taskService.saveTasks(List.of(
+                task("Third", creator, project, Status.TODO, Priority.LOW, DAY.plusDays(2)),
+                task("First", creator, project, Status.TODO, Priority.LOW, DAY),
+                task("Tied", creator, project, Status.TODO, Priority.LOW, DAY.plusDays(1)),
+                task("Tied too", creator, project, Status.TODO, Priority.LOW, DAY.plusDays(1)),
+                task("Out of range", creator, project, Status.TODO, Priority.LOW, DAY.plusDays(3)),
+                task("No due date", creator, project, Status.TODO, Priority.LOW, null)));
+
+        assertEquals(List.of("First", "Tied", "Tied too", "Third"),
+                titles("limit", "1", "dueFrom", DAY.toString(), "dueTo", DAY.plusDays(3).toString()));
+        assertEquals(List.of("Tied", "Tied too", "Third", "Out of range"),
+                titles("limit", "2", "dueFrom", DAY.plusHours(1).toString()));
+    }
+
+    @Test
+    void cursorsMustBeValidForTheFilter() throws Exception {
+        User creator = testData.createUser("listing-cursor@example.com");
+        Project project = testData.createProject(creator, "Listing tests");
+        taskService.saveTasks(List.of(
+                task("AA", creator, project, Status.TODO, Priority.LOW, DAY),
+                task("BB", creator, project, Status.TODO, Priority.LOW, DAY)));
+        String idCursor = JsonPath.read(mockMvc.perform(get("/api/tasks").param("limit", "1"))
+                .andReturn().getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(get("/api/tasks").param("cursor", "not a cursor")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/tasks").param("cursor", idCursor).param("dueFrom", DAY.toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Follows {@code nextCursor} from the first page to the last.
+     */
+    private List<String> titles(String... params) throws Exception {
+        List<String> titles = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/api/tasks");
+            for (int i = 0; i < params.length; i += 2) {
+                request.param(params[i], params[i + 1]);
+            }
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String body = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+            titles.addAll(JsonPath.read(body, "$.tasks[*].title"));
+            cursor = JsonPath.read(body, "$.nextCursor");
+        } while (cursor != null);
+        return titles;
+    }
+
+    private static Task task(String title, User creator, Project project, Status status, Priority priority,
+                             LocalDateTime dueDate) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setCreator(creator);
+        task.setProject(project);
+        task.setStatus(status);
+        task.setPriority(priority);
+        task.setDueDate(dueDate);
+        return task;
+    }
+}
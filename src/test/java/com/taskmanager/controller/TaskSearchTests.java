@@ -0,0 +1,148 @@
+package com.taskmanager.controller;
+
+import com.taskmanager.TestData;
+import com.taskmanager.domain.Project;
+import com.taskmanager.domain.Task;
+import com.taskmanager.domain.User;
+import com.taskmanager.dto.TaskPatch;
+import com.taskmanager.service.TaskSearchIndex;
+import com.taskmanager.service.TaskService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@Import(TestData.class)
+@AutoConfigureMockMvc
+@WithMockUser
+class TaskSearchTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskSearchIndex searchIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.queryForList("SELECT id FROM tasks", Long.class).forEach(searchIndex::remove);
+        jdbcTemplate.update("DELETE FROM task_tombstones");
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void searchRanksTitleMatchesFirstAndFollowsWrites() throws Exception {
+        User creator = testData.createUser("search-creator@example.com");
+        Project project = testData.createProject(creator, "Search tests");
+        List<Task> tasks = taskService.saveTasks(List.of(
+                task("Deploy the billing service", "Roll out to production", creator, project),
+                task("Write release notes", "Mention the billing deployment", creator, project),
+                task("Billing dashboard", "Charts for finance", creator, project)));
+
+        search("billing deploy")
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.tasks[0].id").value(tasks.get(0).getId()))
+                .andExpect(jsonPath("$.tasks[1].id").value(tasks.get(1).getId()));
+        search("BILL").andExpect(jsonPath("$.total").value(3));
+        mockMvc.perform(get("/api/tasks/search").param("q", "bill").param("size", "1").param("page", "2"))
+                .andExpect(jsonPath("$.tasks.length()").value(1))
+                .andExpect(jsonPath("$.total").value(3));
+
+        taskService.patchTask(tasks.get(2).getId(), creator.getId(), null,
+                new TaskPatch("Finance dashboard", null, null, null, null, null), null);
+        taskService.findById(tasks.get(0).getId());
+        search("billing").andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.tasks[0].id").value(tasks.get(1).getId()));
+        search("dashboard").andExpect(jsonPath("$.tasks[0].title").value("Finance dashboard"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            taskService.saveTasks(List.of(task("Rolled back billing", null, creator, project)));
+            status.setRollbackOnly();
+        });
+        search("rolled").andExpect(jsonPath("$.total").value(0));
+
+        mockMvc.perform(get("/api/tasks/search").param("q", " ")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void indexIsRebuiltFromTheDatabase() {
+        User creator = testData.createUser("search-rebuild@example.com");
+        Project project = testData.createProject(creator, "Search tests");
+        jdbcTemplate.update("INSERT INTO tasks (id, title, description, status, priority, creator_id, project_id) " +
+                "VALUES (NEXT VALUE FOR tasks_seq, 'Imported backlog item', NULL, 'TODO', 'LOW', ?, ?)",
+                creator.getId(), project.getId());
+        assertEquals(0, searchIndex.search("imported", 0, 10).total());
+
+        searchIndex.start();
+        assertEquals(1, searchIndex.search("imported", 0, 10).total());
+    }
+
+    @Test
+    void olderVersionOfATaskDoesNotReplaceANewerOne() {
+        long id = 1_000_000;
+        searchIndex.index(id, 2, "Zephyrine milestone", null);
+        searchIndex.index(id, 1, "Quillwort milestone", null);
+
+        assertEquals(0, searchIndex.search("quillwort", 0, 10).total());
+        assertEquals(List.of(id), searchIndex.search("zephyrine", 0, 10).ids());
+        searchIndex.remove(id);
+    }
+
+    @Test
+    void idsBeyondThirtyTwoBitsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> searchIndex.indexAfterCommit(1L << 32, 0, "Overflowing task", null));
+        assertEquals(0, searchIndex.search("overflowing", 0, 10).total());
+    }
+
+    private ResultActions search(String query) throws Exception {
+        return mockMvc.perform(get("/api/tasks/search").param("q", query)).andExpect(status().isOk());
+    }
+
+    private static Task task(String title, String description, User creator, Project project) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setDescription(description);
+        task.setCreator(creator);
+        task.setProject(project);
+        return task;
+    }
+}
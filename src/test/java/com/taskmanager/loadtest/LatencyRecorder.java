@@ -0,0 +1,48 @@
+package com.taskmanager.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latencies and outcomes of one endpoint. Every sample is kept, which is affordable for
+ * the run lengths of a load test and makes the percentiles exact.
+ */
+class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+
+    synchronized void success(long latencyNanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+    }
+
+    synchronized void error() {
+        errors++;
+    }
+
+    synchronized LoadReport.EndpointResult result(String name, double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return new LoadReport.EndpointResult(
+                name,
+                count,
+                errors,
+                count / seconds,
+                percentile(sorted, 0.50),
+                percentile(sorted, 0.90),
+                percentile(sorted, 0.99),
+                percentile(sorted, 0.999),
+                count == 0 ? 0 : sorted[count - 1] / 1_000_000.0);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1_000_000.0;
+    }
+}
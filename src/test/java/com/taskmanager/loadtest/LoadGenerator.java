@@ -0,0 +1,145 @@
+package com.taskmanager.loadtest;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: requests arrive at a fixed rate whatever the server does, and each one is
+ * picked from a weighted mix of operations. Requests are sent asynchronously so a slow server cannot
+ * hold back the arrivals, and latency is measured from the scheduled arrival rather than from the
+ * actual send.
+ */
+class LoadGenerator {
+
+    /**
+     * One kind of request in the mix.
+     */
+    interface Operation {
+        /**
+         * Sends one request; the future completes with the response.
+         *
+         * @return {@code null} if there is nothing to do for this operation right now, e.g. no task left
+         * to delete.
+         */
+        CompletableFuture<HttpResponse<String>> send();
+    }
+
+    record WeightedOperation(String name, int weight, Operation operation) {
+    }
+
+    private final List<WeightedOperation> mix;
+    private final int[] cumulativeWeights;
+    private final double rate;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final AtomicLong inFlight = new AtomicLong();
+    private long skipped;
+    private long maxLagNanos;
+
+    LoadGenerator(List<WeightedOperation> mix, double rate, Duration warmup, Duration duration) {
+        this.mix = mix;
+        this.rate = rate;
+        this.warmup = warmup;
+        this.duration = duration;
+        cumulativeWeights = new int[mix.size()];
+        int total = 0;
+        for (int i = 0; i < mix.size(); i++) {
+            total += mix.get(i).weight();
+            cumulativeWeights[i] = total;
+            recorders.put(mix.get(i).name(), new LatencyRecorder());
+        }
+    }
+
+    /**
+     * Runs the warmup and then the measured window, and waits for the last responses.
+     */
+    void run() throws InterruptedException {
+        long interval = (long) (1_000_000_000L / rate);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        for (long scheduled = start; scheduled < end; scheduled += interval) {
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            maxLagNanos = Math.max(maxLagNanos, System.nanoTime() - scheduled);
+            dispatch(pick(), scheduled, scheduled >= measureFrom);
+        }
+
+        long deadline = System.nanoTime() + Duration.ofMinutes(1).toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void dispatch(WeightedOperation operation, long scheduled, boolean measured) {
+        LatencyRecorder recorder = recorders.get(operation.name());
+        CompletableFuture<HttpResponse<String>> response;
+        try {
+            response = operation.operation().send();
+        } catch (RuntimeException e) {
+            if (measured) {
+                recorder.error();
+            }
+            return;
+        }
+        if (response == null) {
+            if (measured) {
+                skipped++;
+            }
+            return;
+        }
+
+        inFlight.incrementAndGet();
+        response.whenComplete((result, failure) -> {
+            long latency = System.nanoTime() - scheduled;
+            if (measured) {
+                if (failure == null && result.statusCode() / 100 == 2) {
+                    recorder.success(latency);
+                } else {
+                    recorder.error();
+                }
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+
+    private WeightedOperation pick() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return mix.get(i);
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    List<LoadReport.EndpointResult> results() {
+        double seconds = duration.toNanos() / 1e9;
+        return recorders.entrySet().stream()
+                .map(entry -> entry.getValue().result(entry.getKey(), seconds))
+                .toList();
+    }
+
+    /**
+     * How far behind schedule the generator itself ran at worst; a large value means the client machine,
+     * not the server, limited the offered rate.
+     */
+    double maxLagMillis() {
+        return maxLagNanos / 1_000_000.0;
+    }
+
+    long skipped() {
+        return skipped;
+    }
+}
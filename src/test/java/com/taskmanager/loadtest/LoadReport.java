@@ -0,0 +1,34 @@
+package com.taskmanager.loadtest;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Machine-readable result of one load test run, written as JSON so that runs of different commits can
+ * be diffed. Latencies are in milliseconds and measured from the scheduled arrival of each request, so
+ * time spent queued behind a slow server is included.
+ */
+record LoadReport(
+        String commit,
+        String startedAt,
+        String javaVersion,
+        Map<String, Object> config,
+        double offeredRate,
+        double generatorMaxLag,
+        long skipped,
+        List<EndpointResult> endpoints
+) {
+
+    record EndpointResult(
+            String name,
+            long requests,
+            long errors,
+            double throughput,
+            double p50,
+            double p90,
+            double p99,
+            double p999,
+            double max
+    ) {
+    }
+}
@@ -0,0 +1,318 @@
+package com.taskmanager.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Boots the whole application on an embedded H2 database, seeds it and drives a weighted mix of
+ * requests at a fixed arrival rate. Prints a per-endpoint summary and writes a {@link LoadReport} as JSON
+ * to {@code loadtest.output} (by default {@code target/loadtest/<commit>.json}).
+ * <p>
+ * Run with {@code mvn test -Ploadtest}. All knobs are system properties:
+ * <ul>
+ *     <li>{@code loadtest.users}, {@code loadtest.projects}, {@code loadtest.tasks}: seeded data</li>
+ *     <li>{@code loadtest.rate}: arrivals per second over the whole mix</li>
+ *     <li>{@code loadtest.warmup-seconds}, {@code loadtest.seconds}: unmeasured and measured windows</li>
+ *     <li>{@code loadtest.mix}: comma-separated {@code operation=weight} pairs, see {@link #DEFAULT_MIX}</li>
+ * </ul>
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false"
+})
+class LoadTests {
+
+    private static final String DEFAULT_MIX = "login=5,refresh=5,tasks.list=25,tasks.get=20,tasks.create=10," +
+            "tasks.patch=10,tasks.delete=5,projects.list=20";
+    private static final String PASSWORD = "secret";
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 100);
+    private static final int PROJECTS = Integer.getInteger("loadtest.projects", 20);
+    private static final int TASKS = Integer.getInteger("loadtest.tasks", 2000);
+    private static final double RATE = Double.parseDouble(System.getProperty("loadtest.rate", "50"));
+    private static final long WARMUP_SECONDS = Long.getLong("loadtest.warmup-seconds", 10);
+    private static final long SECONDS = Long.getLong("loadtest.seconds", 30);
+    private static final String MIX = System.getProperty("loadtest.mix", DEFAULT_MIX);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final List<Session> sessions = new ArrayList<>();
+    private long[] projectIds;
+    private long[] taskIds;
+
+    /**
+     * A seeded user with its current tokens, the seeded tasks it created and the tasks it created during
+     * the run. Only the latter are deleted, so reads and patches of seeded tasks never hit a 404.
+     */
+    private static class Session {
+        final String email;
+        final long[] ownTaskIds;
+        final Deque<Long> createdTaskIds = new ConcurrentLinkedDeque<>();
+        volatile String token;
+        volatile String refreshToken;
+
+        Session(String email, long[] ownTaskIds) {
+            this.email = email;
+            this.ownTaskIds = ownTaskIds;
+        }
+    }
+
+    @Test
+    void sustainsTheConfiguredArrivalRate() throws Exception {
+        Instant startedAt = Instant.now();
+        seed();
+        for (Session session : sessions) {
+            HttpResponse<String> response = login(session).join();
+            assertEquals(200, response.statusCode(), response.body());
+        }
+
+        LoadGenerator generator = new LoadGenerator(mix(), RATE, Duration.ofSeconds(WARMUP_SECONDS), Duration.ofSeconds(SECONDS));
+        generator.run();
+
+        LoadReport report = new LoadReport(
+                commit(),
+                startedAt.toString(),
+                Runtime.version().toString(),
+                config(),
+                RATE,
+                generator.maxLagMillis(),
+                generator.skipped(),
+                generator.results());
+        Path output = Path.of(System.getProperty("loadtest.output", "target/loadtest/" + report.commit() + ".json"));
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+
+        print(report, output);
+        assertEquals(0, report.endpoints().stream().mapToLong(LoadReport.EndpointResult::errors).sum());
+    }
+
+    private List<LoadGenerator.WeightedOperation> mix() {
+        Map<String, LoadGenerator.Operation> operations = Map.of(
+                "login", () -> login(randomSession()),
+                "refresh", this::refresh,
+                "tasks.list", () -> send(randomSession(), HttpRequest.newBuilder(uri("/api/tasks?limit=50&projectId=" + random(projectIds)))),
+                "tasks.get", () -> send(randomSession(), HttpRequest.newBuilder(uri("/api/tasks/" + random(taskIds)))),
+                "tasks.create", this::createTask,
+                "tasks.patch", this::patchTask,
+                "tasks.delete", this::deleteTask,
+                "projects.list", () -> send(randomSession(), HttpRequest.newBuilder(uri("/api/projects"))));
+
+        List<LoadGenerator.WeightedOperation> mix = new ArrayList<>();
+        for (String entry : MIX.split(",")) {
+            String[] parts = entry.trim().split("=");
+            LoadGenerator.Operation operation = operations.get(parts[0]);
+            if (operation == null) {
+                throw new IllegalArgumentException("Unknown operation " + parts[0] + ", expected one of " + operations.keySet());
+            }
+            mix.add(new LoadGenerator.WeightedOperation(parts[0], Integer.parseInt(parts[1]), operation));
+        }
+        return mix;
+    }
+
+    private CompletableFuture<HttpResponse<String>> login(Session session) {
+        String body = json(Map.of("firstName", "Load", "lastName", "Test", "email", session.email, "password", PASSWORD));
+        return client.sendAsync(post("/api/users/login", body), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() == 200) {
+                        JsonNode tokens = readTree(response.body());
+                        session.token = tokens.get("token").asText();
+                        session.refreshToken = tokens.get("refreshToken").asText();
+                    }
+                    return response;
+                });
+    }
+
+    private CompletableFuture<HttpResponse<String>> refresh() {
+        Session session = randomSession();
+        return client.sendAsync(post("/api/users/refresh", json(Map.of("refreshToken", session.refreshToken))),
+                        HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() == 200) {
+                        session.token = readTree(response.body()).get("token").asText();
+                    }
+                    return response;
+                });
+    }
+
+    private CompletableFuture<HttpResponse<String>> createTask() {
+        Session session = randomSession();
+        String body = json(Map.of(
+                "title", "Load task",
+                "description", "Created by the load test",
+                "priority", "HIGH",
+                "project", Map.of("id", random(projectIds))));
+        return send(session, HttpRequest.newBuilder(uri("/api/tasks"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)))
+                .thenApply(response -> {
+                    if (response.statusCode() == 200) {
+                        session.createdTaskIds.add(readTree(response.body()).get("id").asLong());
+                    }
+                    return response;
+                });
+    }
+
+    private CompletableFuture<HttpResponse<String>> patchTask() {
+        Session session = randomSession();
+        String body = json(Map.of("status", "IN_PROGRESS", "description", "Patched at " + System.nanoTime()));
+        return send(session, HttpRequest.newBuilder(uri("/api/tasks/" + random(session.ownTaskIds)))
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private CompletableFuture<HttpResponse<String>> deleteTask() {
+        Session session = randomSession();
+        Long id = session.createdTaskIds.pollFirst();
+        if (id == null) {
+            return null;
+        }
+        return send(session, HttpRequest.newBuilder(uri("/api/tasks/" + id)).DELETE());
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(Session session, HttpRequest.Builder request) {
+        return client.sendAsync(request.header("Authorization", "Bearer " + session.token).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Seeds users with contiguous ids, projects owned by them and tasks spread round-robin over creators
+     * and projects. Every user creates at least one task so that each session has something to patch.
+     */
+    private void seed() {
+        int users = USERS;
+        int tasks = Math.max(TASKS, users);
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_active, security_version) " +
+                "SELECT 'Load', 'Test', CONCAT('loadtest-', X, '@example.com'), ?, TRUE, 0 FROM SYSTEM_RANGE(1, ?)", PASSWORD, users);
+        long firstUser = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users WHERE email LIKE 'loadtest-%'", Long.class);
+        jdbcTemplate.update("INSERT INTO projects (title, description, owner_id) " +
+                "SELECT CONCAT('Project ', X), 'Seeded by the load test', ? + MOD(X, ?) FROM SYSTEM_RANGE(1, ?)", firstUser, users, PROJECTS);
+        projectIds = jdbcTemplate.queryForList("SELECT id FROM projects ORDER BY id", Long.class).stream()
+                .mapToLong(Long::longValue).toArray();
+        jdbcTemplate.update("INSERT INTO tasks (id, title, description, status, priority, creator_id, assignee_id, project_id, created_at) " +
+                        "SELECT NEXT VALUE FOR tasks_seq, CONCAT('Task ', X), 'Seeded by the load test', 'TODO', 'MEDIUM', " +
+                        "? + MOD(X, ?), ? + MOD(X * 7, ?), ? + MOD(X, ?), CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)",
+                firstUser, users, firstUser, users, projectIds[0], projectIds.length, tasks);
+
+        Map<Long, List<Long>> tasksByCreator = new HashMap<>();
+        List<Long> allTasks = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, creator_id FROM tasks ORDER BY id", row -> {
+            allTasks.add(row.getLong(1));
+            tasksByCreator.computeIfAbsent(row.getLong(2), creator -> new ArrayList<>()).add(row.getLong(1));
+        });
+        taskIds = allTasks.stream().mapToLong(Long::longValue).toArray();
+        for (int i = 0; i < users; i++) {
+            long[] own = tasksByCreator.get(firstUser + i).stream().mapToLong(Long::longValue).toArray();
+            sessions.add(new Session("loadtest-" + (i + 1) + "@example.com", own));
+        }
+    }
+
+    private Map<String, Object> config() {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("users", USERS);
+        config.put("projects", PROJECTS);
+        config.put("tasks", TASKS);
+        config.put("rate", RATE);
+        config.put("warmupSeconds", WARMUP_SECONDS);
+        config.put("seconds", SECONDS);
+        config.put("mix", MIX);
+        config.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        return config;
+    }
+
+    private static void print(LoadReport report, Path output) {
+        System.out.printf("%nLoad test at %.0f req/s for %d s, generator max lag %.1f ms, %d skipped%n",
+                report.offeredRate(), SECONDS, report.generatorMaxLag(), report.skipped());
+        System.out.printf("%-14s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (LoadReport.EndpointResult endpoint : report.endpoints()) {
+            System.out.printf("%-14s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint.name(), endpoint.requests(), endpoint.errors(), endpoint.throughput(),
+                    endpoint.p50(), endpoint.p90(), endpoint.p99(), endpoint.p999(), endpoint.max());
+        }
+        System.out.println("Results written to " + output.toAbsolutePath());
+    }
+
+    /**
+     * @return the abbreviated commit of the working tree, or {@code unknown} outside a git checkout.
+     */
+    private static String commit() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            String commit = new String(git.getInputStream().readAllBytes()).trim();
+            return git.waitFor() == 0 && !commit.isEmpty() ? commit : "unknown";
+        } catch (IOException e) {
+            return "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+
+    private Session randomSession() {
+        return sessions.get(ThreadLocalRandom.current().nextInt(sessions.size()));
+    }
+
+    private static long random(long[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.taskmanager.metrics;
+
+import com.taskmanager.repository.UserRepository;
+import com.taskmanager.security.JwtUtil;
+import com.taskmanager.security.PrincipalCache;
+import com.taskmanager.metrics.RequestPhases.Phase;
+import io.micrometer.core.instrument.DistributionSummary;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RequestMetricsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        principalCache.invalidate("metrics@example.com");
+    }
+
+    @Test
+    void recordsEveryPhaseOfAnAuthenticatedRequest() throws Exception {
+        String token = seedUserWithProjects(1);
+        String[] phases = {"jwt", "principal", "repository", "sql", "mapping", "serialization"};
+        long[] before = new long[phases.length];
+        for (int i = 0; i < phases.length; i++) {
+            before[i] = phaseCount("/api/projects", phases[i]);
+        }
+        double statementsBefore = statements("/api/projects");
+
+        mockMvc.perform(get("/api/projects").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        for (int i = 0; i < phases.length; i++) {
+            assertEquals(1, phaseCount("/api/projects", phases[i]) - before[i], phases[i]);
+        }
+        assertEquals(1, statements("/api/projects") - statementsBefore,
+                "the principal comes from the second-level cache, then the project view");
+    }
+
+    @Test
+    void rejectedRequestsAreTaggedUnknownWithoutPhases() throws Exception {
+        long before = unknownPhaseCount();
+
+        mockMvc.perform(get("/api/projects")).andExpect(status().isForbidden());
+
+        assertEquals(before, unknownPhaseCount());
+    }
+
+    @Test
+    void jfrRecordingBreaksRequestsDownByPhase(@TempDir Path dir) throws Exception {
+        String token = seedUserWithProjects(3);
+        Path file = dir.resolve("requests.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("taskmanager.Request");
+            recording.enable("taskmanager.Phase");
+            recording.start();
+            for (int i = 0; i < 2; i++) {
+                mockMvc.perform(get("/api/projects").header("Authorization", "Bearer " + token))
+                        .andExpect(status().isOk());
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        JfrPhaseReport.EndpointSummary endpoint = JfrPhaseReport.summarize(file).get("GET /api/projects");
+        assertNotNull(endpoint);
+        assertEquals(2, endpoint.requests);
+        assertEquals(Set.of(Phase.JWT, Phase.PRINCIPAL, Phase.REPOSITORY, Phase.MAPPING, Phase.SERIALIZATION),
+                endpoint.phases.keySet());
+        JfrPhaseReport.PhaseSummary viewRows = endpoint.details.get("ProjectRepository.findAllViewRows");
+        assertNotNull(viewRows);
+        assertEquals(2, viewRows.calls);
+        assertEquals(6, viewRows.rows);
+        assertEquals(6, endpoint.phases.get(Phase.MAPPING).rows);
+    }
+
+    private String seedUserWithProjects(int projects) {
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_active, security_version) " +
+                "VALUES ('Metrics', 'User', 'metrics@example.com', 'secret', TRUE, 0)");
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'metrics@example.com'", Long.class);
+        for (int i = 0; i < projects; i++) {
+            jdbcTemplate.update("INSERT INTO projects (title, owner_id) VALUES (?, ?)", "Metrics " + i, userId);
+        }
+        return jwtUtil.generateToken(userRepository.findById(userId).orElseThrow());
+    }
+
+    private long phaseCount(String uri, String phase) {
+        Timer timer = registry.find("taskmanager.request.phase").tags("uri", uri, "phase", phase).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private long unknownPhaseCount() {
+        return registry.find("taskmanager.request.phase").tags("uri", "UNKNOWN").timers().stream()
+                .mapToLong(Timer::count).sum();
+    }
+
+    private double statements(String uri) {
+        DistributionSummary summary = registry.find("taskmanager.request.sql.statements")
+                .tags("method", "GET", "uri", uri).summary();
+        return summary == null ? 0 : summary.totalAmount();
+    }
+}
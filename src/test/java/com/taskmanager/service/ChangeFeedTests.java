@@ -0,0 +1,151 @@
+package com.taskmanager.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeFeedTests {
+
+    private final ChangeFeed feed = new ChangeFeed(2, 60_000, 1, 2, 100);
+
+    @AfterEach
+    void stop() {
+        feed.stop();
+    }
+
+    @Test
+    void subscribersOnlyReceiveTheirChangesAndResyncAfterFallingBehind() throws Exception {
+        RecordingEmitter creator = subscribe(1L, false);
+        RecordingEmitter other = subscribe(2L, false);
+        RecordingEmitter admin = subscribe(3L, true);
+
+        // Nothing is sent before the feed starts, so the buffers overflow.
+        for (long id = 1; id <= 5; id++) {
+            feed.publish(new ChangeEvent("task.updated", id, 0, Set.of(1L)));
+        }
+        feed.start();
+        feed.heartbeat();
+
+        List<String> expected = List.of("event:resync", "event:task.updated id=4", "event:task.updated id=5");
+        assertEquals(expected, creator.await(3));
+        assertEquals(expected, admin.await(3));
+        assertEquals(List.of(":heartbeat"), other.await(1));
+        assertEquals(2, feed.getResyncCount());
+
+        feed.publish(new ChangeEvent("project.deleted", 7L, 3, Set.of(2L)));
+        assertEquals(":heartbeat", other.await(2).get(0));
+        assertEquals("event:project.deleted id=7", other.await(2).get(1));
+        assertEquals(3, feed.getSubscriberCount());
+    }
+
+    @Test
+    void aSubscriberThatStopsReadingIsEvictedWithoutStallingTheOthers() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        RecordingEmitter stalled = new BlockingEmitter(unblock);
+        feed.subscribe(stalled, 1L, false);
+        RecordingEmitter other = subscribe(2L, false);
+        feed.start();
+
+        feed.publish(new ChangeEvent("task.updated", 1L, 0, Set.of(1L)));
+        stalled.await(1);
+        feed.publish(new ChangeEvent("task.updated", 2L, 0, Set.of(1L, 2L)));
+
+        assertEquals(List.of("event:task.updated id=2"), other.await(1));
+        assertEquals(1, feed.getEvictionCount());
+        assertEquals(1, feed.getSubscriberCount());
+        unblock.countDown();
+        assertEquals(List.of("event:task.updated id=1"), stalled.await(1));
+    }
+
+    @Test
+    void stalledSubscribersNeverTakeMoreThanTheMaximumOfSenderThreads() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        List<RecordingEmitter> stalled = new ArrayList<>();
+        for (long userId = 1; userId <= 4; userId++) {
+            RecordingEmitter emitter = new BlockingEmitter(unblock);
+            feed.subscribe(emitter, userId, false);
+            stalled.add(emitter);
+        }
+        feed.start();
+
+        feed.publish(new ChangeEvent("task.updated", 1L, 0, Set.of(1L, 2L, 3L, 4L)));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (feed.getEvictionCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(2, feed.getEvictionCount());
+        assertEquals(2, feed.getSenderThreadCount());
+        unblock.countDown();
+        for (RecordingEmitter emitter : stalled) {
+            assertEquals(List.of("event:task.updated id=1"), emitter.await(1));
+        }
+    }
+
+    private RecordingEmitter subscribe(Long userId, boolean admin) {
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(emitter, userId, admin);
+        return emitter;
+    }
+
+    /**
+     * Records the name of every event it is asked to send, with the id from its data.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder event = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof Map<?, ?> data) {
+                    event.append(" id=").append(data.get("id"));
+                } else {
+                    event.append(part.getData().toString().lines().findFirst().orElse(""));
+                }
+            }
+            sent.add(event.toString());
+        }
+
+        List<String> await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (sent.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(sent.size() >= count, "sent " + sent);
+            return List.copyOf(sent);
+        }
+    }
+
+    /**
+     * Records an event, then blocks like a write to a client that stopped reading until {@code unblock} opens.
+     */
+    private static class BlockingEmitter extends RecordingEmitter {
+        private final CountDownLatch unblock;
+
+        BlockingEmitter(CountDownLatch unblock) {
+            this.unblock = unblock;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            super.send(builder);
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.taskmanager.service;
+
+import com.taskmanager.security.TokenDigest;
+import db.migration.V8__hash_legacy_tokens;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the token digest migration over a table in the legacy layout, and times lookups of random tokens
+ * through the legacy unique index and then through the digest index, hashing included.
+ */
+@SpringBootTest
+class LegacyTokenMigrationTests {
+
+    private static final int ROWS = Integer.getInteger("token-migration.tests.rows", 2_500);
+    private static final int LOOKUPS = 2_000;
+    /**
+     * Stands in for the header and claims of a JWT, so that legacy keys are as wide as real tokens.
+     */
+    private static final String PREFIX = "eyJhbGciOiJIUzI1NiJ9." + "x".repeat(180) + ".";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.execute("ALTER TABLE tokens DROP COLUMN IF EXISTS token");
+        jdbcTemplate.update("DELETE FROM tokens");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void hashesLegacyTokensAndDropsTheColumn() throws Exception {
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_active, security_version) " +
+                "VALUES ('Legacy', 'User', 'legacy@example.com', 'secret', TRUE, 0)");
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'legacy@example.com'", Long.class);
+        jdbcTemplate.execute("ALTER TABLE tokens ADD COLUMN token VARCHAR(512) NOT NULL DEFAULT ''");
+        jdbcTemplate.update("INSERT INTO tokens (id, token, token_type, is_revoked, is_expired, created_at, expires_at, user_id) " +
+                "SELECT X, CONCAT(?, X), 1, FALSE, FALSE, CURRENT_TIMESTAMP, DATEADD('DAY', 7, CURRENT_TIMESTAMP), ? " +
+                "FROM SYSTEM_RANGE(1, ?)", PREFIX, userId, ROWS);
+        jdbcTemplate.execute("CREATE UNIQUE INDEX ux_tokens_token ON tokens (token)");
+        double before = microsPerLookup(x -> jdbcTemplate.queryForList(
+                "SELECT id FROM tokens WHERE token = ?", Long.class, PREFIX + x));
+
+        try (Connection connection = dataSource.getConnection()) {
+            new V8__hash_legacy_tokens().migrate(context(connection));
+        }
+        double after = microsPerLookup(x -> jdbcTemplate.queryForList(
+                "SELECT id FROM tokens WHERE token_hash = ?", Long.class, (Object) TokenDigest.sha256(PREFIX + x)));
+
+        System.out.printf("%n%d legacy tokens: %.1f us per lookup by token, %.1f us per lookup by digest%n",
+                ROWS, before, after);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tokens WHERE token_hash IS NULL", Integer.class));
+        assertFalse(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_NAME = 'TOKENS' AND COLUMN_NAME = 'TOKEN'", Integer.class) > 0);
+        assertTrue(jwtService.validateRefreshToken(PREFIX + 1));
+        assertTrue(jwtService.validateRefreshToken(PREFIX + ROWS));
+        assertFalse(jwtService.validateRefreshToken(PREFIX + (ROWS + 1)));
+    }
+
+    private static double microsPerLookup(LongConsumer lookup) {
+        List<Long> ids = ThreadLocalRandom.current().longs(LOOKUPS, 1, ROWS + 1).boxed().toList();
+        ids.forEach(lookup::accept);
+        long start = System.nanoTime();
+        ids.forEach(lookup::accept);
+        return (System.nanoTime() - start) / 1_000.0 / LOOKUPS;
+    }
+
+    private static Context context(Connection connection) {
+        return new Context() {
+            @Override
+            public Configuration getConfiguration() {
+                return null;
+            }
+
+            @Override
+            public Connection getConnection() {
+                return connection;
+            }
+        };
+    }
+}
@@ -0,0 +1,222 @@
+package com.taskmanager.service;
+
+import com.taskmanager.TestData;
+import com.taskmanager.domain.Project;
+import com.taskmanager.domain.Task;
+import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.Priority;
+import com.taskmanager.domain.enums.Status;
+import com.taskmanager.dto.TaskPatch;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Import(TestData.class)
+class TaskExpiryTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskExpiry taskExpiry;
+
+    @Autowired
+    private ProjectTaskCounts taskCounts;
+
+    @Autowired
+    private TaskChangeLog changeLog;
+
+    @Autowired
+    private TaskQueue taskQueue;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM task_tombstones");
+        jdbcTemplate.update("DELETE FROM tasks");
+        jdbcTemplate.update("DELETE FROM projects");
+        jdbcTemplate.update("DELETE FROM user_role");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void wheelFiresEachTimerAtItsTickAcrossLevels() {
+        TimingWheel wheel = new TimingWheel(10);
+        long[] ticks = {11, 63, 64, 130, 4095, 4096, 300_000, 10};
+        for (int id = 0; id < ticks.length; id++) {
+            wheel.schedule(id, 0, ticks[id]);
+        }
+        wheel.schedule(3, 1, 131);
+        wheel.cancel(4);
+        assertEquals(7, wheel.size());
+        assertEquals(1, wheel.version(3));
+        assertEquals(-1, wheel.version(4));
+        assertEquals(false, wheel.schedule(99, 0, 10 + (1L << 24)));
+
+        assertEquals(List.of(7L, 0L), wheel.advance(11));
+        assertEquals(List.of(1L, 2L), wheel.advance(64));
+        assertEquals(List.of(), wheel.advance(130));
+        assertEquals(List.of(3L), wheel.advance(131));
+        assertEquals(List.of(5L), wheel.advance(299_999));
+        assertEquals(List.of(6L), wheel.advance(300_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void overdueTasksExpireOnStartupAndTimersFollowPatchedDueDates() {
+        User creator = testData.createUser("expiry@example.com");
+        Project project = testData.createProject(creator, "Expiry tests");
+        LocalDateTime yesterday = LocalDateTime.now().minusDays(1);
+        Long overdue = insertTask(creator, project, "TODO", yesterday);
+        Long done = insertTask(creator, project, "DONE", yesterday);
+
+        long now = System.currentTimeMillis();
+        assertEquals(1, taskExpiry.catchUp(now));
+        assertEquals(Map.of("STATUS", "EXPIRED", "VERSION", 1L), statusAndVersion(overdue));
+        assertEquals("DONE", statusAndVersion(done).get("STATUS"));
+
+        LocalDateTime soon = LocalDateTime.now().plusSeconds(2);
+        List<Task> tasks = taskService.saveTasks(List.of(task(creator, project, soon), task(creator, project, soon)));
+        Long expiring = tasks.get(0).getId();
+        Long postponed = tasks.get(1).getId();
+        taskService.patchTask(postponed, creator.getId(), null,
+                new TaskPatch(null, null, null, null, LocalDateTime.now().plusHours(1), null), null);
+
+        taskExpiry.advance(System.currentTimeMillis() + 3_000);
+        assertEquals("EXPIRED", statusAndVersion(expiring).get("STATUS"));
+        assertEquals("TODO", statusAndVersion(postponed).get("STATUS"));
+        Map<Status, Map<Priority, Long>> counts = taskCounts.find(project.getId()).counts();
+        assertEquals(1L, counts.get(Status.EXPIRED).get(Priority.MEDIUM));
+        assertEquals(1L, counts.get(Status.TODO).get(Priority.MEDIUM));
+    }
+
+    @Test
+    void tasksOfATickThatFailedAreExpiredByTheNextOne() {
+        User creator = testData.createUser("expiry-retry@example.com");
+        Project project = testData.createProject(creator, "Expiry tests");
+        long now = System.currentTimeMillis();
+        Long expiring = insertTask(creator, project, "TODO", LocalDateTime.now().plusSeconds(30));
+        FailingTransactionTemplate transactions = new FailingTransactionTemplate(1);
+        TaskExpiry expiry = expiry(transactions);
+        expiry.start();
+        try {
+            assertEquals(1, expiry.getPendingCount());
+
+            assertThrows(CannotCreateTransactionException.class, () -> expiry.advance(now + 120_000));
+            assertEquals(0, expiry.getPendingCount());
+            assertEquals("TODO", statusAndVersion(expiring).get("STATUS"));
+
+            expiry.advance(now + 121_000);
+            assertEquals("EXPIRED", statusAndVersion(expiring).get("STATUS"));
+        } finally {
+            expiry.stop();
+        }
+    }
+
+    @Test
+    void anOlderVersionOfATaskDoesNotReplaceItsTimer() {
+        TaskExpiry expiry = expiry(new FailingTransactionTemplate(0));
+        expiry.start();
+        try {
+            expiry.scheduleAfterCommit(List.of(versioned(2, LocalDateTime.now().plusHours(1))));
+            expiry.scheduleAfterCommit(List.of(versioned(1, null)));
+            assertEquals(1, expiry.getPendingCount());
+
+            expiry.scheduleAfterCommit(List.of(versioned(3, null)));
+            assertEquals(0, expiry.getPendingCount());
+        } finally {
+            expiry.stop();
+        }
+    }
+
+    /**
+     * A tick of a minute, so that the expiry's own thread never ticks during a test.
+     */
+    private TaskExpiry expiry(TransactionTemplate transactions) {
+        return new TaskExpiry(jdbcTemplate, transactions, changeLog, taskCounts, taskQueue, eventPublisher,
+                true, 60_000, 86_400_000);
+    }
+
+    private static Task versioned(long version, LocalDateTime dueDate) {
+        Task task = new Task();
+        task.setId(Long.MAX_VALUE);
+        task.setVersion(version);
+        task.setDueDate(dueDate);
+        return task;
+    }
+
+    private Map<String, Object> statusAndVersion(Long id) {
+        return jdbcTemplate.queryForMap("SELECT status, version FROM tasks WHERE id = ?", id);
+    }
+
+    private static Task task(User creator, Project project, LocalDateTime dueDate) {
+        Task task = new Task();
+        task.setTitle("Expiring");
+        task.setCreator(creator);
+        task.setProject(project);
+        task.setDueDate(dueDate);
+        return task;
+    }
+
+    /**
+     * Fails the first {@code failures} transactions, as when the database is unreachable.
+     */
+    private class FailingTransactionTemplate extends TransactionTemplate {
+        private int failures;
+
+        FailingTransactionTemplate(int failures) {
+            super(transactionManager);
+            this.failures = failures;
+        }
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            if (failures > 0) {
+                failures--;
+                throw new CannotCreateTransactionException("Connection refused");
+            }
+            return super.execute(action);
+        }
+    }
+
+    private Long insertTask(User creator, Project project, String status, LocalDateTime dueDate) {
+        jdbcTemplate.update("INSERT INTO tasks (id, title, status, priority, creator_id, project_id, due_date) " +
+                        "VALUES (NEXT VALUE FOR tasks_seq, 'Overdue', ?, 'LOW', ?, ?, ?)",
+                status, creator.getId(), project.getId(), Timestamp.valueOf(dueDate));
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM tasks", Long.class);
+    }
+}
@@ -0,0 +1,181 @@
+package com.taskmanager.service;
+
+import com.taskmanager.domain.JwpToken;
+import com.taskmanager.domain.User;
+import com.taskmanager.domain.enums.TokenType;
+import com.taskmanager.security.TokenDigest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class TokenJournalTests {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private GatedTransactionTemplate gatedTemplate;
+    private TokenJournal started;
+
+    @BeforeEach
+    void setUp() {
+        gatedTemplate = new GatedTransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        gatedTemplate.gate.countDown();
+        if (started != null) {
+            started.stop();
+        }
+        jdbcTemplate.update("DELETE FROM tokens");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void aPendingTokenIsFoundBeforeItIsWrittenAndStopWritesItOut() throws InterruptedException {
+        long userId = insertUser();
+        TokenJournal journal = start(100, 100);
+
+        journal.submit(token("first", userId));
+        assertTrue(gatedTemplate.entered.await(10, TimeUnit.SECONDS));
+        journal.submit(token("second", userId));
+        journal.submit(token("third", userId));
+
+        assertNotNull(journal.findPending("first"));
+        assertNotNull(journal.findPending("third"));
+        assertEquals(0, countTokens());
+
+        gatedTemplate.gate.countDown();
+        journal.stop();
+
+        assertEquals(3, countTokens());
+        assertEquals(0, journal.getPendingCount());
+    }
+
+    @Test
+    void aFullBufferMakesTheCallerWriteItsToken() throws InterruptedException {
+        long userId = insertUser();
+        TokenJournal journal = start(1, 50);
+        journal.submit(token("taken", userId));
+        assertTrue(gatedTemplate.entered.await(10, TimeUnit.SECONDS));
+        journal.submit(token("queued", userId));
+
+        long startNanos = System.nanoTime();
+        journal.submit(token("overflow", userId));
+
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(50), "waited for the buffer");
+        assertEquals(1, countTokens());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tokens WHERE token_hash = ?", Integer.class,
+                TokenDigest.sha256("overflow")));
+        assertNull(journal.findPending("overflow"));
+        assertNotNull(journal.findPending("queued"));
+    }
+
+    @Test
+    void aTokenTheCallerFailsToWriteIsNoLongerPending() throws InterruptedException {
+        long userId = insertUser();
+        TokenJournal journal = start(1, 50);
+        journal.submit(token("taken", userId));
+        assertTrue(gatedTemplate.entered.await(10, TimeUnit.SECONDS));
+        journal.submit(token("queued", userId));
+
+        assertThrows(RuntimeException.class, () -> journal.submit(token("orphan", userId + 1000)));
+
+        assertNull(journal.findPending("orphan"));
+        assertEquals(2, journal.getPendingCount());
+    }
+
+    @Test
+    void aTokenThatCannotBeWrittenDoesNotTakeItsBatchDown() {
+        long userId = insertUser();
+        List<JwpToken> tokens = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            tokens.add(token("valid-" + i, userId));
+        }
+        tokens.add(4, token("orphan", userId + 1000));
+        TokenJournal journal = new TokenJournal(entityManager, transactionTemplate, true, 100, 100, 100);
+
+        journal.writeWithRetry(tokens);
+
+        assertEquals(9, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tokens", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tokens WHERE user_id <> ?", Integer.class, userId));
+        assertTrue(journal.getWriteFailureCount() >= 4, "the batch, then every half that holds the orphan");
+    }
+
+    private TokenJournal start(int capacity, long offerTimeoutMillis) {
+        started = new TokenJournal(entityManager, gatedTemplate, true, capacity, 100, offerTimeoutMillis);
+        started.start();
+        return started;
+    }
+
+    private long insertUser() {
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_active, security_version) " +
+                "VALUES ('Journal', 'User', 'journal@example.com', 'secret', TRUE, 0)");
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'journal@example.com'", Long.class);
+    }
+
+    private int countTokens() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tokens", Integer.class);
+    }
+
+    private static JwpToken token(String token, long userId) {
+        User user = new User();
+        user.setId(userId);
+        return new JwpToken(token, TokenType.REFRESH, new Date(), new Date(System.currentTimeMillis() + 60_000), user);
+    }
+
+    /**
+     * Holds the journal's writer thread at its first write until {@link #gate} opens; other threads write
+     * right away.
+     */
+    private static class GatedTransactionTemplate extends TransactionTemplate {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch gate = new CountDownLatch(1);
+
+        GatedTransactionTemplate(PlatformTransactionManager transactionManager) {
+            super(transactionManager);
+        }
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            if ("token-journal-writer".equals(Thread.currentThread().getName())) {
+                entered.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.execute(action);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.taskmanager.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class TokenReaperTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tokens");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void deletesExpiredAndRevokedTokensInChunks() {
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_active, security_version) " +
+                "VALUES ('Reaper', 'User', 'reaper@example.com', 'secret', TRUE, 0)");
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'reaper@example.com'", Long.class);
+        insertTokens(1, 5, false, -1, userId);
+        insertTokens(6, 8, true, 1, userId);
+        insertTokens(9, 10, false, 1, userId);
+        TokenReaper reaper = new TokenReaper(jdbcTemplate, true, 60_000, 2, 1_000_000);
+
+        reaper.reap();
+
+        assertEquals(List.of(9L, 10L), jdbcTemplate.queryForList("SELECT id FROM tokens ORDER BY id", Long.class));
+        assertEquals(8, reaper.getRowsReaped());
+        assertEquals(0, reaper.getLagMillis());
+    }
+
+    @Test
+    void rejectsRatesThatCannotPaceChunks() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenReaper(jdbcTemplate, true, 60_000, 1000, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenReaper(jdbcTemplate, true, 60_000, 0, 5000));
+    }
+
+    @Test
+    void exportsRowsReapedAndLag() {
+        assertNotNull(registry.find("taskmanager.tokens.reaper.rows").functionCounter());
+        assertNotNull(registry.find("taskmanager.tokens.reaper.lag").timeGauge());
+    }
+
+    private void insertTokens(long fromId, long toId, boolean revoked, int expiresInDays, Long userId) {
+        jdbcTemplate.update("INSERT INTO tokens (id, token_hash, token_type, is_revoked, is_expired, created_at, expires_at, user_id) " +
+                "SELECT X, HASH('SHA-256', CAST(X AS VARCHAR)), 1, ?, FALSE, CURRENT_TIMESTAMP, " +
+                "DATEADD('DAY', ?, CURRENT_TIMESTAMP), ? FROM SYSTEM_RANGE(?, ?)", revoked, expiresInDays, userId, fromId, toId);
+    }
+}